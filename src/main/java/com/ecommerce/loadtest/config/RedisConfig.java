@@ -1,5 +1,6 @@
 package com.ecommerce.loadtest.config;
 
+import com.ecommerce.loadtest.utils.CompactRedisSerializer;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,8 +13,10 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -27,21 +30,20 @@ import java.time.Duration;
 @EnableCaching
 public class RedisConfig {
     
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_COMPACT = "compact";
+    
     /**
      * 配置RedisTemplate
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       StressTestDataConfig stressTestDataConfig) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
-        // 使用Jackson2JsonRedisSerializer来序列化和反序列化redis的value值
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        serializer.setObjectMapper(mapper);
+        // value序列化方式由配置决定，默认使用带类型信息的JSON
+        RedisSerializer<Object> serializer = createValueSerializer(stressTestDataConfig.getRedis().getValueCodec());
         
         // 使用StringRedisSerializer来序列化和反序列化redis的key值
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
@@ -50,26 +52,33 @@ public class RedisConfig {
         template.setKeySerializer(stringSerializer);
         // hash的key也采用String的序列化方式
         template.setHashKeySerializer(stringSerializer);
-        // value序列化方式采用jackson
+        // value序列化方式
         template.setValueSerializer(serializer);
-        // hash的value序列化方式采用jackson
+        // hash的value序列化方式与value一致
         template.setHashValueSerializer(serializer);
         
         template.afterPropertiesSet();
         return template;
     }
     
+    /**
+     * 配置Redis消息监听容器，用于订阅本地缓存失效等广播消息
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+    
     /**
      * 配置缓存管理器
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     StressTestDataConfig stressTestDataConfig) {
         // 配置序列化
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        serializer.setObjectMapper(mapper);
+        RedisSerializer<Object> serializer = createValueSerializer(stressTestDataConfig.getRedis().getValueCodec());
         
         // 配置缓存
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
@@ -83,4 +92,27 @@ public class RedisConfig {
                 .transactionAware()
                 .build();
     }
+    
+    /**
+     * 按名称创建value序列化器：json-带类型信息的JSON，compact-紧凑二进制编码
+     */
+    public static RedisSerializer<Object> createValueSerializer(String codec) {
+        if (CODEC_COMPACT.equalsIgnoreCase(codec)) {
+            return new CompactRedisSerializer(createTypedObjectMapper());
+        }
+        if (codec != null && !CODEC_JSON.equalsIgnoreCase(codec)) {
+            throw new IllegalArgumentException("不支持的Redis value序列化方式: " + codec);
+        }
+        // 使用Jackson2JsonRedisSerializer来序列化和反序列化redis的value值
+        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        serializer.setObjectMapper(createTypedObjectMapper());
+        return serializer;
+    }
+    
+    private static ObjectMapper createTypedObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        return mapper;
+    }
 }
@@ -16,10 +16,39 @@ public class StressTestDataConfig {
     private Processing processing = new Processing();
     private File file = new File();
     private Notification notification = new Notification();
+    private Redis redis = new Redis();
+    private Cart cart = new Cart();
     
     public static class Processing {
         private int maxProductCount = 300;
         private int redEnvelopeQpsLimit = 300;
+        private int redEnvelopeBurst = 10;
+        private String redEnvelopeLimiterMode = "local";
+        private int redEnvelopePrefetch = 10;
+        private int redEnvelopeWriteBatchSize = 500;
+        private long redEnvelopeWriteFlushIntervalMs = 200;
+        private int redEnvelopeWriteQueueCapacity = 20000;
+        private int redEnvelopeCheckpointUsers = 1000;
+        private int redEnvelopeDispatchWorkers = 2;
+        private long redEnvelopeBatchHeartbeatMs = 10000;
+        private long redEnvelopeStatsReconcileIntervalMs = 60000;
+        private int redEnvelopeMaxInFlight = 1000;
+        private int redEnvelopeMinInFlight = 10;
+        private int redEnvelopeInitialInFlight = 50;
+        private int redEnvelopeAimdIncreaseStep = 5;
+        private long redEnvelopeAimdLatencyThresholdMs = 200;
+        private double redEnvelopeAimdErrorRateThreshold = 0.05;
+        private int orderIdSegmentSize = 1000;
+        private int orderBulkWorkers = 4;
+        private int orderBulkChunkSize = 500;
+        private int orderPaymentWorkers = 50;
+        private int orderPaymentQueueCapacity = 1000;
+        private long orderPaymentTimeoutMs = 3000;
+        private int orderHistoryWriteBatchSize = 500;
+        private long orderHistoryWriteFlushIntervalMs = 200;
+        private int orderHistoryWriteQueueCapacity = 50000;
+        private long orderNearCacheMaxSize = 100000;
+        private long orderNearCacheTtlMs = 30000;
         private int defaultThreadPoolSize = 10;
         
         public int getMaxProductCount() {
@@ -38,6 +67,222 @@ public class StressTestDataConfig {
             this.redEnvelopeQpsLimit = redEnvelopeQpsLimit;
         }
         
+        public int getRedEnvelopeBurst() {
+            return redEnvelopeBurst;
+        }
+        
+        public void setRedEnvelopeBurst(int redEnvelopeBurst) {
+            this.redEnvelopeBurst = redEnvelopeBurst;
+        }
+        
+        public String getRedEnvelopeLimiterMode() {
+            return redEnvelopeLimiterMode;
+        }
+        
+        public void setRedEnvelopeLimiterMode(String redEnvelopeLimiterMode) {
+            this.redEnvelopeLimiterMode = redEnvelopeLimiterMode;
+        }
+        
+        public int getRedEnvelopePrefetch() {
+            return redEnvelopePrefetch;
+        }
+        
+        public void setRedEnvelopePrefetch(int redEnvelopePrefetch) {
+            this.redEnvelopePrefetch = redEnvelopePrefetch;
+        }
+        
+        public int getRedEnvelopeWriteBatchSize() {
+            return redEnvelopeWriteBatchSize;
+        }
+        
+        public void setRedEnvelopeWriteBatchSize(int redEnvelopeWriteBatchSize) {
+            this.redEnvelopeWriteBatchSize = redEnvelopeWriteBatchSize;
+        }
+        
+        public long getRedEnvelopeWriteFlushIntervalMs() {
+            return redEnvelopeWriteFlushIntervalMs;
+        }
+        
+        public void setRedEnvelopeWriteFlushIntervalMs(long redEnvelopeWriteFlushIntervalMs) {
+            this.redEnvelopeWriteFlushIntervalMs = redEnvelopeWriteFlushIntervalMs;
+        }
+        
+        public int getRedEnvelopeWriteQueueCapacity() {
+            return redEnvelopeWriteQueueCapacity;
+        }
+        
+        public void setRedEnvelopeWriteQueueCapacity(int redEnvelopeWriteQueueCapacity) {
+            this.redEnvelopeWriteQueueCapacity = redEnvelopeWriteQueueCapacity;
+        }
+        
+        public int getRedEnvelopeCheckpointUsers() {
+            return redEnvelopeCheckpointUsers;
+        }
+        
+        public void setRedEnvelopeCheckpointUsers(int redEnvelopeCheckpointUsers) {
+            this.redEnvelopeCheckpointUsers = redEnvelopeCheckpointUsers;
+        }
+        
+        public long getRedEnvelopeBatchHeartbeatMs() {
+            return redEnvelopeBatchHeartbeatMs;
+        }
+        
+        public void setRedEnvelopeBatchHeartbeatMs(long redEnvelopeBatchHeartbeatMs) {
+            this.redEnvelopeBatchHeartbeatMs = redEnvelopeBatchHeartbeatMs;
+        }
+        
+        public int getRedEnvelopeDispatchWorkers() {
+            return redEnvelopeDispatchWorkers;
+        }
+        
+        public void setRedEnvelopeDispatchWorkers(int redEnvelopeDispatchWorkers) {
+            this.redEnvelopeDispatchWorkers = redEnvelopeDispatchWorkers;
+        }
+        
+        public long getRedEnvelopeStatsReconcileIntervalMs() {
+            return redEnvelopeStatsReconcileIntervalMs;
+        }
+        
+        public void setRedEnvelopeStatsReconcileIntervalMs(long redEnvelopeStatsReconcileIntervalMs) {
+            this.redEnvelopeStatsReconcileIntervalMs = redEnvelopeStatsReconcileIntervalMs;
+        }
+        
+        public int getRedEnvelopeMaxInFlight() {
+            return redEnvelopeMaxInFlight;
+        }
+        
+        public void setRedEnvelopeMaxInFlight(int redEnvelopeMaxInFlight) {
+            this.redEnvelopeMaxInFlight = redEnvelopeMaxInFlight;
+        }
+        
+        public int getRedEnvelopeMinInFlight() {
+            return redEnvelopeMinInFlight;
+        }
+        
+        public void setRedEnvelopeMinInFlight(int redEnvelopeMinInFlight) {
+            this.redEnvelopeMinInFlight = redEnvelopeMinInFlight;
+        }
+        
+        public int getRedEnvelopeInitialInFlight() {
+            return redEnvelopeInitialInFlight;
+        }
+        
+        public void setRedEnvelopeInitialInFlight(int redEnvelopeInitialInFlight) {
+            this.redEnvelopeInitialInFlight = redEnvelopeInitialInFlight;
+        }
+        
+        public int getRedEnvelopeAimdIncreaseStep() {
+            return redEnvelopeAimdIncreaseStep;
+        }
+        
+        public void setRedEnvelopeAimdIncreaseStep(int redEnvelopeAimdIncreaseStep) {
+            this.redEnvelopeAimdIncreaseStep = redEnvelopeAimdIncreaseStep;
+        }
+        
+        public long getRedEnvelopeAimdLatencyThresholdMs() {
+            return redEnvelopeAimdLatencyThresholdMs;
+        }
+        
+        public void setRedEnvelopeAimdLatencyThresholdMs(long redEnvelopeAimdLatencyThresholdMs) {
+            this.redEnvelopeAimdLatencyThresholdMs = redEnvelopeAimdLatencyThresholdMs;
+        }
+        
+        public double getRedEnvelopeAimdErrorRateThreshold() {
+            return redEnvelopeAimdErrorRateThreshold;
+        }
+        
+        public void setRedEnvelopeAimdErrorRateThreshold(double redEnvelopeAimdErrorRateThreshold) {
+            this.redEnvelopeAimdErrorRateThreshold = redEnvelopeAimdErrorRateThreshold;
+        }
+        
+        public int getOrderIdSegmentSize() {
+            return orderIdSegmentSize;
+        }
+        
+        public void setOrderIdSegmentSize(int orderIdSegmentSize) {
+            this.orderIdSegmentSize = orderIdSegmentSize;
+        }
+        
+        public int getOrderBulkWorkers() {
+            return orderBulkWorkers;
+        }
+        
+        public void setOrderBulkWorkers(int orderBulkWorkers) {
+            this.orderBulkWorkers = orderBulkWorkers;
+        }
+        
+        public int getOrderBulkChunkSize() {
+            return orderBulkChunkSize;
+        }
+        
+        public void setOrderBulkChunkSize(int orderBulkChunkSize) {
+            this.orderBulkChunkSize = orderBulkChunkSize;
+        }
+        
+        public int getOrderPaymentWorkers() {
+            return orderPaymentWorkers;
+        }
+        
+        public void setOrderPaymentWorkers(int orderPaymentWorkers) {
+            this.orderPaymentWorkers = orderPaymentWorkers;
+        }
+        
+        public int getOrderPaymentQueueCapacity() {
+            return orderPaymentQueueCapacity;
+        }
+        
+        public void setOrderPaymentQueueCapacity(int orderPaymentQueueCapacity) {
+            this.orderPaymentQueueCapacity = orderPaymentQueueCapacity;
+        }
+        
+        public long getOrderPaymentTimeoutMs() {
+            return orderPaymentTimeoutMs;
+        }
+        
+        public void setOrderPaymentTimeoutMs(long orderPaymentTimeoutMs) {
+            this.orderPaymentTimeoutMs = orderPaymentTimeoutMs;
+        }
+        
+        public int getOrderHistoryWriteBatchSize() {
+            return orderHistoryWriteBatchSize;
+        }
+        
+        public void setOrderHistoryWriteBatchSize(int orderHistoryWriteBatchSize) {
+            this.orderHistoryWriteBatchSize = orderHistoryWriteBatchSize;
+        }
+        
+        public long getOrderHistoryWriteFlushIntervalMs() {
+            return orderHistoryWriteFlushIntervalMs;
+        }
+        
+        public void setOrderHistoryWriteFlushIntervalMs(long orderHistoryWriteFlushIntervalMs) {
+            this.orderHistoryWriteFlushIntervalMs = orderHistoryWriteFlushIntervalMs;
+        }
+        
+        public int getOrderHistoryWriteQueueCapacity() {
+            return orderHistoryWriteQueueCapacity;
+        }
+        
+        public void setOrderHistoryWriteQueueCapacity(int orderHistoryWriteQueueCapacity) {
+            this.orderHistoryWriteQueueCapacity = orderHistoryWriteQueueCapacity;
+        }
+        
+        public long getOrderNearCacheMaxSize() {
+            return orderNearCacheMaxSize;
+        }
+        
+        public void setOrderNearCacheMaxSize(long orderNearCacheMaxSize) {
+            this.orderNearCacheMaxSize = orderNearCacheMaxSize;
+        }
+        
+        public long getOrderNearCacheTtlMs() {
+            return orderNearCacheTtlMs;
+        }
+        
+        public void setOrderNearCacheTtlMs(long orderNearCacheTtlMs) {
+            this.orderNearCacheTtlMs = orderNearCacheTtlMs;
+        }
+        
         public int getDefaultThreadPoolSize() {
             return defaultThreadPoolSize;
         }
@@ -89,6 +334,57 @@ public class StressTestDataConfig {
         }
     }
     
+    public static class Redis {
+        private String valueCodec = "json";
+        
+        public String getValueCodec() {
+            return valueCodec;
+        }
+        
+        public void setValueCodec(String valueCodec) {
+            this.valueCodec = valueCodec;
+        }
+    }
+    
+    public static class Cart {
+        private String backend = "memory";
+        private String store = "striped";
+        private long expireSeconds = 604800;
+        private long reapIntervalMs = 60000;
+        
+        public String getBackend() {
+            return backend;
+        }
+        
+        public void setBackend(String backend) {
+            this.backend = backend;
+        }
+        
+        public String getStore() {
+            return store;
+        }
+        
+        public void setStore(String store) {
+            this.store = store;
+        }
+        
+        public long getExpireSeconds() {
+            return expireSeconds;
+        }
+        
+        public void setExpireSeconds(long expireSeconds) {
+            this.expireSeconds = expireSeconds;
+        }
+        
+        public long getReapIntervalMs() {
+            return reapIntervalMs;
+        }
+        
+        public void setReapIntervalMs(long reapIntervalMs) {
+            this.reapIntervalMs = reapIntervalMs;
+        }
+    }
+    
     public Processing getProcessing() {
         return processing;
     }
@@ -112,4 +408,20 @@ public class StressTestDataConfig {
     public void setNotification(Notification notification) {
         this.notification = notification;
     }
+    
+    public Redis getRedis() {
+        return redis;
+    }
+    
+    public void setRedis(Redis redis) {
+        this.redis = redis;
+    }
+    
+    public Cart getCart() {
+        return cart;
+    }
+    
+    public void setCart(Cart cart) {
+        this.cart = cart;
+    }
 }
@@ -0,0 +1,277 @@
+package com.ecommerce.loadtest.controller;
+
+import com.ecommerce.loadtest.common.Result;
+import com.ecommerce.loadtest.config.RedisConfig;
+import com.ecommerce.loadtest.utils.CartStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基准测试控制器
+ * 在本进程内对比不同实现的空间与CPU开销，不访问Redis和数据库
+ *
+ * @author rakkaus
+ */
+@RestController
+@RequestMapping("/benchmark")
+public class BenchmarkController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkController.class);
+
+    private static final int MAX_SAMPLE_ORDERS = 100000;
+    private static final long MAX_SAMPLE_CART_ITEMS = 5000000L;
+    private static final int MAX_ITEMS_PER_CART = 100;
+    private static final String CART_STORE_NESTED_MAP = "nestedMap";
+
+    /**
+     * 对比各Redis value序列化方式下每个订单hash占用的字节数和编解码耗时
+     * 订单按字段逐个序列化，与hmset写入Redis时的方式一致
+     */
+    @GetMapping("/redisCodec")
+    public Result<Map<String, Object>> benchmarkRedisCodec(@RequestParam(defaultValue = "10000") Integer orders,
+                                                           @RequestParam(defaultValue = "5") Integer rounds) {
+        if (orders == null || orders <= 0 || orders > MAX_SAMPLE_ORDERS) {
+            return Result.fail("订单数必须在1到" + MAX_SAMPLE_ORDERS + "之间");
+        }
+        if (rounds == null || rounds <= 0) {
+            return Result.fail("轮数必须大于0");
+        }
+        logger.info("Redis序列化基准测试 - 订单数: {}, 轮数: {}", orders, rounds);
+
+        try {
+            List<Map<String, Object>> sampleOrders = buildSampleOrders(orders);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("orders", orders);
+            result.put("rounds", rounds);
+            for (String codec : Arrays.asList(RedisConfig.CODEC_JSON, RedisConfig.CODEC_COMPACT)) {
+                result.put(codec, measureCodec(RedisConfig.createValueSerializer(codec), sampleOrders, rounds));
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> json = (Map<String, Object>) result.get(RedisConfig.CODEC_JSON);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> compact = (Map<String, Object>) result.get(RedisConfig.CODEC_COMPACT);
+            result.put("bytesRatio", String.format("%.3f",
+                    ((Number) compact.get("bytesPerOrder")).doubleValue() / ((Number) json.get("bytesPerOrder")).doubleValue()));
+
+            logger.info("Redis序列化基准测试完成 - {}", result);
+            return Result.success("测试完成", result);
+        } catch (Exception e) {
+            logger.error("Redis序列化基准测试失败", e);
+            return Result.fail("测试失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 对比各购物车存储在同样数据下的堆内存占用和写入耗时
+     * nestedMap为原先Map<Long, Map<Long, Map<String, Object>>>的结构；
+     * 占用按填充前后Full GC后的已用堆之差估算，测试时应避免其他请求同时运行
+     */
+    @GetMapping("/cartFootprint")
+    public Result<Map<String, Object>> benchmarkCartFootprint(@RequestParam(defaultValue = "100000") Integer users,
+                                                              @RequestParam(defaultValue = "5") Integer itemsPerUser) {
+        if (users == null || users <= 0 || itemsPerUser == null || itemsPerUser <= 0
+                || itemsPerUser > MAX_ITEMS_PER_CART || (long) users * itemsPerUser > MAX_SAMPLE_CART_ITEMS) {
+            return Result.fail("用户数和每用户商品数必须大于0，每用户商品数不超过" + MAX_ITEMS_PER_CART
+                    + "，商品总数不超过" + MAX_SAMPLE_CART_ITEMS);
+        }
+        logger.info("购物车内存占用基准测试 - 用户数: {}, 每用户商品数: {}", users, itemsPerUser);
+
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("users", users);
+            result.put("itemsPerUser", itemsPerUser);
+            for (String store : Arrays.asList(CART_STORE_NESTED_MAP, CartStore.TYPE_STRIPED, CartStore.TYPE_COMPACT)) {
+                result.put(store, measureCartStore(store, users, itemsPerUser));
+            }
+
+            long nestedBytes = bytesPerItem(result.get(CART_STORE_NESTED_MAP));
+            for (String store : Arrays.asList(CartStore.TYPE_STRIPED, CartStore.TYPE_COMPACT)) {
+                long storeBytes = bytesPerItem(result.get(store));
+                result.put(store + "SavingRatio", storeBytes > 0 ? String.format("%.2f", (double) nestedBytes / storeBytes) : "N/A");
+            }
+
+            logger.info("购物车内存占用基准测试完成 - {}", result);
+            return Result.success("测试完成", result);
+        } catch (OutOfMemoryError e) {
+            logger.error("购物车内存占用基准测试内存不足 - 用户数: {}, 每用户商品数: {}", users, itemsPerUser);
+            return Result.fail("测试失败: 堆内存不足，请减少用户数或商品数");
+        } catch (Exception e) {
+            logger.error("购物车内存占用基准测试失败", e);
+            return Result.fail("测试失败: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> measureCartStore(String store, int users, int itemsPerUser) {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long baseline = usedHeapAfterGc();
+
+        long start = System.nanoTime();
+        Object holder;
+        if (CART_STORE_NESTED_MAP.equals(store)) {
+            Map<Long, Map<Long, Map<String, Object>>> carts = new ConcurrentHashMap<>();
+            for (int u = 0; u < users; u++) {
+                Map<Long, Map<String, Object>> cart = carts.computeIfAbsent(10000L + u, k -> new ConcurrentHashMap<>());
+                for (int i = 0; i < itemsPerUser; i++) {
+                    Map<String, Object> item = cart.computeIfAbsent(1000L + random.nextInt(100000), k -> new HashMap<>());
+                    item.put("quantity", (Integer) item.getOrDefault("quantity", 0) + 1 + random.nextInt(3));
+                    item.put("price", 100L + random.nextInt(100000));
+                    item.put("addTime", now);
+                    item.put("updateTime", now);
+                }
+            }
+            holder = carts;
+        } else {
+            CartStore carts = CartStore.create(store);
+            for (int u = 0; u < users; u++) {
+                for (int i = 0; i < itemsPerUser; i++) {
+                    carts.merge(10000L + u, 1000L + random.nextInt(100000), 1 + random.nextInt(3),
+                            100L + random.nextInt(100000), now);
+                }
+            }
+            holder = carts;
+        }
+        long fillNanos = System.nanoTime() - start;
+
+        long retained = Math.max(0L, usedHeapAfterGc() - baseline);
+        long items = (long) users * itemsPerUser;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("retainedBytes", retained);
+        metrics.put("bytesPerUser", retained / users);
+        metrics.put("bytesPerItem", retained / items);
+        metrics.put("fillNanosPerItem", fillNanos / items);
+        // 测量完成前保持存储可达，避免被提前回收
+        metrics.put("holder", holder.getClass().getSimpleName());
+        return metrics;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long bytesPerItem(Object metrics) {
+        return ((Number) ((Map<String, Object>) metrics).get("bytesPerItem")).longValue();
+    }
+
+    private Map<String, Object> measureCodec(RedisSerializer<Object> serializer, List<Map<String, Object>> sampleOrders,
+                                             int rounds) {
+        // 预热一轮，同时校验编解码结果一致并统计字节数
+        long totalBytes = 0;
+        List<List<byte[]>> encoded = new ArrayList<>(sampleOrders.size());
+        for (Map<String, Object> order : sampleOrders) {
+            List<byte[]> fields = new ArrayList<>(order.size());
+            for (Object value : order.values()) {
+                byte[] bytes = serializer.serialize(value);
+                totalBytes += bytes.length;
+                fields.add(bytes);
+            }
+            encoded.add(fields);
+        }
+        Iterator<Object> expected = sampleOrders.get(0).values().iterator();
+        for (byte[] bytes : encoded.get(0)) {
+            Object decoded = serializer.deserialize(bytes);
+            if (!String.valueOf(expected.next()).equals(String.valueOf(decoded))) {
+                throw new IllegalStateException("编解码结果不一致: " + decoded);
+            }
+        }
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        long blackhole = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (Map<String, Object> order : sampleOrders) {
+                for (Object value : order.values()) {
+                    blackhole += serializer.serialize(value).length;
+                }
+            }
+            encodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (List<byte[]> fields : encoded) {
+                for (byte[] bytes : fields) {
+                    if (serializer.deserialize(bytes) != null) {
+                        blackhole++;
+                    }
+                }
+            }
+            decodeNanos += System.nanoTime() - start;
+        }
+
+        long operations = (long) sampleOrders.size() * rounds;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("bytesPerOrder", totalBytes / sampleOrders.size());
+        metrics.put("encodeNanosPerOrder", encodeNanos / operations);
+        metrics.put("decodeNanosPerOrder", decodeNanos / operations);
+        metrics.put("checksum", blackhole);
+        return metrics;
+    }
+
+    /**
+     * 构造与OrderServiceImpl.createOrder写入结构相同的订单
+     */
+    private List<Map<String, Object>> buildSampleOrders(int count) {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long userId = 10000L + random.nextInt(1000000);
+
+            List<Map<String, Object>> items = new ArrayList<>();
+            int itemCount = 1 + random.nextInt(5);
+            long totalPrice = 0;
+            for (int j = 0; j < itemCount; j++) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("productId", 1000L + random.nextInt(100000));
+                item.put("skuId", 100000L + random.nextInt(1000000));
+                item.put("quantity", 1 + random.nextInt(3));
+                item.put("price", 100L + random.nextInt(100000));
+                item.put("productName", "测试商品_" + random.nextInt(10000));
+                totalPrice += ((Number) item.get("price")).longValue() * ((Number) item.get("quantity")).intValue();
+                items.add(item);
+            }
+
+            Map<String, Object> address = new HashMap<>();
+            address.put("addressId", 10000L + userId % 1000);
+            address.put("receiverName", "测试用户_" + userId);
+            address.put("receiverPhone", "138****" + String.format("%04d", userId % 10000));
+            address.put("province", "测试省");
+            address.put("city", "测试市");
+            address.put("district", "测试区");
+            address.put("detail", "测试街道" + (userId % 100) + "号");
+
+            Map<String, Object> order = new LinkedHashMap<>();
+            order.put("orderId", 100000L + i);
+            order.put("userId", userId);
+            order.put("items", items);
+            order.put("totalPrice", totalPrice);
+            order.put("status", 1);
+            order.put("createTime", now);
+            order.put("updateTime", now);
+            order.put("shippingAddress", address);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
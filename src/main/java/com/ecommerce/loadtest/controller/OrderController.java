@@ -0,0 +1,66 @@
+package com.ecommerce.loadtest.controller;
+
+import com.ecommerce.loadtest.common.Result;
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.service.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Redis订单控制器
+ * 支付请求交给独立的支付线程池处理，请求线程在支付期间释放
+ *
+ * @author rakkaus
+ */
+@RestController
+@RequestMapping("/redisOrder")
+public class OrderController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
+
+    /**
+     * DeferredResult超时比支付超时多留出的余量，正常情况下由支付超时先行返回
+     */
+    private static final long DEFERRED_TIMEOUT_MARGIN_MS = 1000L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+
+    @PostMapping("/payOrder")
+    public DeferredResult<Result<Boolean>> payOrder(@RequestParam(name = "orderId") Long orderId,
+                                                    @RequestParam(name = "userId") Long userId,
+                                                    @RequestParam(name = "paymentMethod", defaultValue = "ALIPAY") String paymentMethod) {
+        logger.debug("异步支付订单 - orderId: {}, userId: {}, paymentMethod: {}", orderId, userId, paymentMethod);
+
+        long timeoutMs = stressTestDataConfig.getProcessing().getOrderPaymentTimeoutMs() + DEFERRED_TIMEOUT_MARGIN_MS;
+        DeferredResult<Result<Boolean>> deferredResult = new DeferredResult<>(timeoutMs, Result.fail("支付超时"));
+
+        orderService.payOrderAsync(orderId, userId, paymentMethod).whenComplete((success, e) -> {
+            if (e instanceof RejectedExecutionException) {
+                deferredResult.setResult(Result.fail("支付繁忙，请稍后重试"));
+            } else if (e instanceof TimeoutException) {
+                deferredResult.setResult(Result.fail("支付超时"));
+            } else if (e != null) {
+                logger.error("异步支付订单失败 - orderId: {}", orderId, e);
+                deferredResult.setResult(Result.fail("支付失败"));
+            } else if (Boolean.TRUE.equals(success)) {
+                deferredResult.setResult(Result.success("支付成功", true));
+            } else {
+                deferredResult.setResult(Result.fail("支付失败"));
+            }
+        });
+        return deferredResult;
+    }
+}
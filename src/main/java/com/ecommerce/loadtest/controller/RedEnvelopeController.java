@@ -92,6 +92,9 @@ public class RedEnvelopeController {
             if (planId == null) {
                 return Result.fail("红包计划ID不能为空");
             }
+            if (planId < 0 || planId > RedEnvelopeService.MAX_PLAN_ID) {
+                return Result.fail("红包计划ID超出范围: 0-" + RedEnvelopeService.MAX_PLAN_ID);
+            }
             if (userType == null || (userType != 1 && userType != 2)) {
                 return Result.fail("用户类型参数错误，只支持1(平台A)或2(平台B)");
             }
@@ -117,6 +120,49 @@ public class RedEnvelopeController {
         }
     }
     
+    @GetMapping("/resumeRedReceive")
+    public Result<Integer> resumeRedEnvelope(@RequestParam(name = "batchId") Long batchId,
+                                            @RequestParam(name = "planId") Long planId,
+                                            @RequestParam(name = "userType") Integer userType,
+                                            @RequestParam(name = "threadNum", defaultValue = "4") Integer threadNum) {
+        try {
+            logger.info("续发红包 - batchId: {}, planId: {}, userType: {}, threadNum: {}", 
+                       batchId, planId, userType, threadNum);
+            
+            if (batchId == null) {
+                return Result.fail("批次ID不能为空");
+            }
+            if (planId == null) {
+                return Result.fail("红包计划ID不能为空");
+            }
+            if (planId < 0 || planId > RedEnvelopeService.MAX_PLAN_ID) {
+                return Result.fail("红包计划ID超出范围: 0-" + RedEnvelopeService.MAX_PLAN_ID);
+            }
+            if (userType == null || (userType != 1 && userType != 2)) {
+                return Result.fail("用户类型参数错误，只支持1(平台A)或2(平台B)");
+            }
+            if (threadNum <= 0 || threadNum > 20) {
+                threadNum = 4;
+                logger.warn("线程数参数异常，使用默认值: {}", threadNum);
+            }
+            
+            final Integer finalThreadNum = threadNum;
+            AsyncExecutorUtil.submit(() -> {
+                try {
+                    Long totalSent = redEnvelopeService.resumeRedEnvelope(batchId, planId, userType, finalThreadNum);
+                    logger.info("续发红包完成 - 总共发放{}个红包", totalSent);
+                } catch (Exception e) {
+                    logger.error("续发红包异常 - batchId: {}, planId: {}", batchId, planId, e);
+                }
+            });
+            
+            return Result.success("提交成功，从断点开始异步续发", 1);
+        } catch (Exception e) {
+            logger.error("续发红包失败", e);
+            return Result.fail("提交失败");
+        }
+    }
+    
     @GetMapping("/getRedData")
     public Result<Long> exportRedEnvelopeData(@RequestParam(name = "batchId") Long batchId) {
         try {
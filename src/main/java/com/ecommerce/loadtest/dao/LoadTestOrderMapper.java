@@ -42,6 +42,8 @@ public interface LoadTestOrderMapper {
     
     int batchInsert(@Param("orders") List<LoadTestOrder> orders);
     
+    int batchUpsert(@Param("orders") List<LoadTestOrder> orders);
+    
     List<java.util.Map<String, Object>> selectOrderDataForExport(@Param("startTime") String startTime,
                                                                  @Param("endTime") String endTime,
                                                                  @Param("currentStatus") Integer currentStatus,
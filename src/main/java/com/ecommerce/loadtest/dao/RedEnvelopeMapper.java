@@ -4,6 +4,7 @@ import com.ecommerce.loadtest.dto.RedEnvelopeQueryDTO;
 import com.ecommerce.loadtest.entity.RedEnvelope;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 import java.util.Map;
@@ -28,12 +29,22 @@ public interface RedEnvelopeMapper {
     
     List<RedEnvelope> selectByBatchId(@Param("batchId") Long batchId);
     
+    /**
+     * 流式读取批次红包记录，按唯一键uk_batch_envelope_uid的顺序返回避免filesort，需在事务内遍历
+     */
+    Cursor<RedEnvelope> streamByBatchId(@Param("batchId") Long batchId);
+    
     List<RedEnvelope> selectByUid(@Param("uid") Long uid);
     
     int batchInsert(@Param("records") List<RedEnvelope> records);
     
     Map<String, Object> selectBatchStatistics(@Param("batchId") Long batchId);
     
+    /**
+     * 统计批次已落库的红包记录数，走唯一键uk_batch_envelope_uid的batch_id前缀
+     */
+    long countByBatchId(@Param("batchId") Long batchId);
+    
     List<java.util.Map<String, Object>> selectRedEnvelopeDataForExport(@Param("batchId") Long batchId,
                                                                        @Param("status") Integer status,
                                                                        @Param("platformType") Integer platformType);
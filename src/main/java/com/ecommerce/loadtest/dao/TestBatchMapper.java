@@ -23,6 +23,13 @@ public interface TestBatchMapper {
     
     int updateByPrimaryKeySelective(TestBatch record);
     
+    int claimBatch(@Param("batchId") Long batchId, @Param("batchStatus") Integer batchStatus,
+                   @Param("ownerId") String ownerId, @Param("now") long now, @Param("staleBefore") long staleBefore);
+    
+    int heartbeatBatch(@Param("batchId") Long batchId, @Param("ownerId") String ownerId, @Param("now") long now);
+    
+    int releaseBatch(@Param("batchId") Long batchId, @Param("ownerId") String ownerId);
+    
     List<TestBatch> selectBatchListByStatus(@Param("status") Integer status);
     
     Map<String, Object> selectBatchStatistics(@Param("createUser") String createUser);
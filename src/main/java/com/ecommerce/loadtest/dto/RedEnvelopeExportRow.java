@@ -0,0 +1,162 @@
+package com.ecommerce.loadtest.dto;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import com.alibaba.excel.annotation.format.DateTimeFormat;
+import com.alibaba.excel.annotation.write.style.ColumnWidth;
+import com.ecommerce.loadtest.entity.RedEnvelope;
+
+import java.util.Date;
+
+/**
+ * 红包导出行
+ * 
+ * @author rakkaus
+ */
+@ColumnWidth(20)
+public class RedEnvelopeExportRow {
+    
+    @ExcelProperty("记录ID")
+    private Long receiveId;
+    
+    @ExcelProperty("用户ID")
+    private Long uid;
+    
+    @ExcelProperty("红包ID")
+    private Long redEnvelopeId;
+    
+    @ExcelProperty("批次ID")
+    private Long batchId;
+    
+    @ExcelProperty("金额（分）")
+    private Long amount;
+    
+    @ExcelProperty("状态")
+    private String status;
+    
+    @ExcelProperty("平台")
+    private String platform;
+    
+    @ExcelProperty("领取时间")
+    @DateTimeFormat("yyyy-MM-dd HH:mm:ss")
+    private Date receiveTime;
+    
+    @ExcelProperty("创建时间")
+    @DateTimeFormat("yyyy-MM-dd HH:mm:ss")
+    private Date createTime;
+    
+    public static RedEnvelopeExportRow from(RedEnvelope redEnvelope) {
+        RedEnvelopeExportRow row = new RedEnvelopeExportRow();
+        row.receiveId = redEnvelope.getReceiveId();
+        row.uid = redEnvelope.getUid();
+        row.redEnvelopeId = redEnvelope.getRedEnvelopeId();
+        row.batchId = redEnvelope.getBatchId();
+        row.amount = redEnvelope.getAmount();
+        row.status = statusText(redEnvelope.getStatus());
+        row.platform = platformText(redEnvelope.getPlatformType());
+        row.receiveTime = redEnvelope.getReceiveTime() == null ? null : new Date(redEnvelope.getReceiveTime());
+        row.createTime = redEnvelope.getCreateTime();
+        return row;
+    }
+    
+    private static String statusText(Integer status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case 0:
+                return "待领取";
+            case 1:
+                return "已领取";
+            case 2:
+                return "已过期";
+            default:
+                return String.valueOf(status);
+        }
+    }
+    
+    private static String platformText(Integer platformType) {
+        if (platformType == null) {
+            return null;
+        }
+        switch (platformType) {
+            case 1:
+                return "平台A";
+            case 2:
+                return "平台B";
+            default:
+                return String.valueOf(platformType);
+        }
+    }
+    
+    public Long getReceiveId() {
+        return receiveId;
+    }
+    
+    public void setReceiveId(Long receiveId) {
+        this.receiveId = receiveId;
+    }
+    
+    public Long getUid() {
+        return uid;
+    }
+    
+    public void setUid(Long uid) {
+        this.uid = uid;
+    }
+    
+    public Long getRedEnvelopeId() {
+        return redEnvelopeId;
+    }
+    
+    public void setRedEnvelopeId(Long redEnvelopeId) {
+        this.redEnvelopeId = redEnvelopeId;
+    }
+    
+    public Long getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(Long batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Long getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getPlatform() {
+        return platform;
+    }
+    
+    public void setPlatform(String platform) {
+        this.platform = platform;
+    }
+    
+    public Date getReceiveTime() {
+        return receiveTime;
+    }
+    
+    public void setReceiveTime(Date receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+    
+    public Date getCreateTime() {
+        return createTime;
+    }
+    
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+}
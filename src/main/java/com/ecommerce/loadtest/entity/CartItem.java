@@ -0,0 +1,87 @@
+package com.ecommerce.loadtest.entity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 购物车商品项
+ * 数量、价格、时间均为基本类型，由购物车存储在用户锁内修改，对外只暴露副本
+ * 
+ * @author rakkaus
+ */
+public class CartItem {
+    
+    private long productId;
+    private int quantity;
+    private long price;
+    private long addTime;
+    private long updateTime;
+    
+    public CartItem() {
+    }
+    
+    public CartItem(long productId, int quantity, long price, long addTime, long updateTime) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.price = price;
+        this.addTime = addTime;
+        this.updateTime = updateTime;
+    }
+    
+    public CartItem copy() {
+        return new CartItem(productId, quantity, price, addTime, updateTime);
+    }
+    
+    /**
+     * 转换为接口返回的Map结构，字段与原有购物车返回保持一致
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("productId", productId);
+        item.put("quantity", quantity);
+        item.put("price", price);
+        item.put("addTime", addTime);
+        item.put("updateTime", updateTime);
+        return item;
+    }
+    
+    public long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(long productId) {
+        this.productId = productId;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+    
+    public long getPrice() {
+        return price;
+    }
+    
+    public void setPrice(long price) {
+        this.price = price;
+    }
+    
+    public long getAddTime() {
+        return addTime;
+    }
+    
+    public void setAddTime(long addTime) {
+        this.addTime = addTime;
+    }
+    
+    public long getUpdateTime() {
+        return updateTime;
+    }
+    
+    public void setUpdateTime(long updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -16,6 +16,22 @@ public class TestBatch {
     private Integer batchStatus;
     private Long updateTime;
     
+    /**
+     * 断点：已完成发放的用户偏移量（按uid升序）
+     */
+    private Long checkpointOffset;
+    
+    /**
+     * 计划发放次数，批次开始时确定，续发时沿用
+     */
+    private Long planSendCount;
+    
+    /**
+     * 正在发放该批次的节点，心跳超时后其他节点可以接管
+     */
+    private String ownerId;
+    private Long heartbeatTime;
+    
     public TestBatch() {
     }
     
@@ -84,6 +100,38 @@ public class TestBatch {
         this.updateTime = updateTime;
     }
     
+    public Long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+    
+    public void setCheckpointOffset(Long checkpointOffset) {
+        this.checkpointOffset = checkpointOffset;
+    }
+    
+    public Long getPlanSendCount() {
+        return planSendCount;
+    }
+    
+    public void setPlanSendCount(Long planSendCount) {
+        this.planSendCount = planSendCount;
+    }
+    
+    public String getOwnerId() {
+        return ownerId;
+    }
+    
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+    
+    public Long getHeartbeatTime() {
+        return heartbeatTime;
+    }
+    
+    public void setHeartbeatTime(Long heartbeatTime) {
+        this.heartbeatTime = heartbeatTime;
+    }
+    
     @Override
     public String toString() {
         return "TestBatch{" +
@@ -93,6 +141,10 @@ public class TestBatch {
                 ", totalCount=" + totalCount +
                 ", realCount=" + realCount +
                 ", batchStatus=" + batchStatus +
+                ", checkpointOffset=" + checkpointOffset +
+                ", planSendCount=" + planSendCount +
+                ", ownerId='" + ownerId + '\'' +
+                ", heartbeatTime=" + heartbeatTime +
                 '}';
     }
 }
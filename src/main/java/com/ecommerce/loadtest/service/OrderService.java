@@ -2,6 +2,7 @@ package com.ecommerce.loadtest.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 订单服务接口
@@ -25,6 +26,11 @@ public interface OrderService {
      */
     boolean payOrder(Long orderId, Long userId, String paymentMethod);
     
+    /**
+     * 异步支付订单，在独立的支付线程池中执行；排队已满时立即以异常完成，超时以TimeoutException完成
+     */
+    CompletableFuture<Boolean> payOrderAsync(Long orderId, Long userId, String paymentMethod);
+    
     /**
      * 获取用户订单列表
      */
@@ -40,6 +46,11 @@ public interface OrderService {
      */
     int batchCreateOrders(List<Map<String, Object>> orderRequests);
     
+    /**
+     * 批量创建订单，返回与请求一一对应的订单ID，创建失败的位置为null
+     */
+    List<Long> bulkCreateOrders(List<Map<String, Object>> orderRequests);
+    
     /**
      * 批量取消订单
      */
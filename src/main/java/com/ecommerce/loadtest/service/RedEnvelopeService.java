@@ -13,6 +13,12 @@ import java.util.List;
  */
 public interface RedEnvelopeService {
     
+    /**
+     * 红包ID = 计划ID * PLAN_ID_STRIDE + 发放序号，计划ID超过MAX_PLAN_ID时红包ID溢出
+     */
+    long PLAN_ID_STRIDE = 1_000_000_000_000L;
+    long MAX_PLAN_ID = Long.MAX_VALUE / PLAN_ID_STRIDE - 1;
+    
     int deleteByPrimaryKey(Long receiveId);
     
     int insertSelective(RedEnvelope record);
@@ -25,6 +31,8 @@ public interface RedEnvelopeService {
     
     Long sendRedEnvelope(Long batchId, Long planId, Integer userType, Integer threadNum) throws InterruptedException;
     
+    Long resumeRedEnvelope(Long batchId, Long planId, Integer userType, Integer threadNum) throws InterruptedException;
+    
     Result<Long> exportRedEnvelope(Long batchId);
     
     int getRedPlanElementCount(Long planId);
@@ -20,6 +20,21 @@ public interface TestBatchService {
     
     int updateByPrimaryKeySelective(TestBatch record);
     
+    /**
+     * 认领批次的发放权并把批次置为进行中，batchStatus不为空时还要求批次处于该状态
+     *
+     * @param staleTimeoutMillis 其他节点的心跳超过该时长未更新时视为已停止
+     * @return 认领成功返回true，批次正在其他节点发放时返回false
+     */
+    boolean claimBatch(Long batchId, Integer batchStatus, String ownerId, long staleTimeoutMillis);
+    
+    /**
+     * 更新发放心跳，返回false表示批次已被其他节点接管
+     */
+    boolean heartbeatBatch(Long batchId, String ownerId);
+    
+    void releaseBatch(Long batchId, String ownerId);
+    
     List<TestBatch> selectBatchListByStatus(Integer status);
     
     Map<String, Object> getBatchStatistics();
@@ -1,48 +1,85 @@
 package com.ecommerce.loadtest.service.impl;
 
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.entity.CartItem;
 import com.ecommerce.loadtest.service.CartService;
+import com.ecommerce.loadtest.utils.CartStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 购物车服务实现类
+ * 购物车保存在本机内存中，stresstest.cart.backend为memory（默认）时启用
  * 
  * @author rakkaus
  */
 @Service
+@ConditionalOnProperty(prefix = "stresstest.cart", name = "backend", havingValue = "memory", matchIfMissing = true)
 public class CartServiceImpl implements CartService {
     
     private static final Logger logger = LoggerFactory.getLogger(CartServiceImpl.class);
     
-    private static final Map<Long, Map<Long, Map<String, Object>>> cartStorage = new ConcurrentHashMap<>();
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+    
+    @Autowired
+    private MockProductCatalog mockProductCatalog;
+    
+    private CartStore cartStore;
+    
+    private ScheduledExecutorService reapScheduler;
+    
+    @PostConstruct
+    public void init() {
+        StressTestDataConfig.Cart cart = stressTestDataConfig.getCart();
+        cartStore = CartStore.create(cart.getStore());
+        logger.info("购物车存储初始化完成 - store: {}", cart.getStore());
+        
+        long interval = cart.getReapIntervalMs();
+        if (interval > 0) {
+            long expireMillis = TimeUnit.SECONDS.toMillis(cart.getExpireSeconds());
+            reapScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cart-expire-reaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reapScheduler.scheduleWithFixedDelay(() -> reapExpiredItems(expireMillis), interval, interval, TimeUnit.MILLISECONDS);
+            logger.info("购物车过期清理任务已启动 - 间隔: {}ms, 过期时间: {}s", interval, cart.getExpireSeconds());
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        if (reapScheduler != null) {
+            reapScheduler.shutdownNow();
+        }
+    }
     
     @Override
     public boolean addToCart(Long userId, Long productId, Integer quantity) {
         logger.info("添加商品到购物车 - userId: {}, productId: {}, quantity: {}", userId, productId, quantity);
         
         try {
-            if (!mockCheckInventory(productId, quantity)) {
+            if (!mockProductCatalog.checkInventory(productId, quantity)) {
                 logger.warn("库存不足 - productId: {}, quantity: {}", productId, quantity);
                 return false;
             }
             
-            Long price = mockGetProductPrice(productId);
+            Long price = mockProductCatalog.getProductPrice(productId);
             
-            Map<Long, Map<String, Object>> userCart = cartStorage.computeIfAbsent(userId, k -> new ConcurrentHashMap<>());
+            int newQuantity = cartStore.merge(userId, productId, quantity, price, System.currentTimeMillis());
             
-            Map<String, Object> item = userCart.computeIfAbsent(productId, k -> new HashMap<>());
-            Integer currentQuantity = (Integer) item.getOrDefault("quantity", 0);
-            
-            item.put("quantity", currentQuantity + quantity);
-            item.put("price", price);
-            item.put("addTime", System.currentTimeMillis());
-            item.put("updateTime", System.currentTimeMillis());
-            
-            logger.info("商品添加成功 - userId: {}, productId: {}, 新数量: {}", userId, productId, currentQuantity + quantity);
+            logger.info("商品添加成功 - userId: {}, productId: {}, 新数量: {}", userId, productId, newQuantity);
             return true;
             
         } catch (Exception e) {
@@ -56,14 +93,7 @@ public class CartServiceImpl implements CartService {
         logger.info("从购物车移除商品 - userId: {}, productId: {}", userId, productId);
         
         try {
-            Map<Long, Map<String, Object>> userCart = cartStorage.get(userId);
-            if (userCart == null) {
-                logger.warn("用户购物车不存在 - userId: {}", userId);
-                return false;
-            }
-            
-            Map<String, Object> removedItem = userCart.remove(productId);
-            if (removedItem == null) {
+            if (!cartStore.remove(userId, productId)) {
                 logger.warn("商品不在购物车中 - userId: {}, productId: {}", userId, productId);
                 return false;
             }
@@ -86,26 +116,16 @@ public class CartServiceImpl implements CartService {
         }
         
         try {
-            Map<Long, Map<String, Object>> userCart = cartStorage.get(userId);
-            if (userCart == null) {
-                logger.warn("用户购物车不存在 - userId: {}", userId);
+            if (!mockProductCatalog.checkInventory(productId, quantity)) {
+                logger.warn("库存不足 - productId: {}, quantity: {}", productId, quantity);
                 return false;
             }
             
-            Map<String, Object> item = userCart.get(productId);
-            if (item == null) {
+            if (!cartStore.update(userId, productId, quantity, System.currentTimeMillis())) {
                 logger.warn("商品不在购物车中 - userId: {}, productId: {}", userId, productId);
                 return false;
             }
             
-            if (!mockCheckInventory(productId, quantity)) {
-                logger.warn("库存不足 - productId: {}, quantity: {}", productId, quantity);
-                return false;
-            }
-            
-            item.put("quantity", quantity);
-            item.put("updateTime", System.currentTimeMillis());
-            
             logger.info("商品数量更新成功 - userId: {}, productId: {}, 新数量: {}", userId, productId, quantity);
             return true;
             
@@ -120,17 +140,11 @@ public class CartServiceImpl implements CartService {
         logger.debug("获取用户购物车 - userId: {}", userId);
         
         try {
-            Map<Long, Map<String, Object>> userCart = cartStorage.get(userId);
-            if (userCart == null || userCart.isEmpty()) {
-                return new ArrayList<>();
-            }
-            
             List<Map<String, Object>> cartItems = new ArrayList<>();
-            for (Map.Entry<Long, Map<String, Object>> entry : userCart.entrySet()) {
-                Map<String, Object> item = new HashMap<>(entry.getValue());
-                item.put("productId", entry.getKey());
-                item.put("productName", "Mock商品_" + entry.getKey());
-                item.put("productImage", "/images/product_" + entry.getKey() + ".jpg");
+            for (CartItem cartItem : cartStore.snapshot(userId)) {
+                Map<String, Object> item = cartItem.toMap();
+                item.put("productName", "Mock商品_" + cartItem.getProductId());
+                item.put("productImage", "/images/product_" + cartItem.getProductId() + ".jpg");
                 
                 cartItems.add(item);
             }
@@ -149,11 +163,11 @@ public class CartServiceImpl implements CartService {
         logger.info("清空用户购物车 - userId: {}", userId);
         
         try {
-            Map<Long, Map<String, Object>> userCart = cartStorage.remove(userId);
-            boolean success = userCart != null;
+            int removedCount = cartStore.clear(userId);
+            boolean success = removedCount >= 0;
             
             if (success) {
-                logger.info("购物车清空成功 - userId: {}, 清理商品数: {}", userId, userCart.size());
+                logger.info("购物车清空成功 - userId: {}, 清理商品数: {}", userId, removedCount);
             } else {
                 logger.warn("用户购物车不存在 - userId: {}", userId);
             }
@@ -171,10 +185,10 @@ public class CartServiceImpl implements CartService {
         logger.debug("获取购物车统计信息 - userId: {}", userId);
         
         try {
-            Map<Long, Map<String, Object>> userCart = cartStorage.get(userId);
+            List<CartItem> userCart = cartStore.snapshot(userId);
             Map<String, Object> statistics = new HashMap<>();
             
-            if (userCart == null || userCart.isEmpty()) {
+            if (userCart.isEmpty()) {
                 statistics.put("totalItems", 0);
                 statistics.put("totalQuantity", 0);
                 statistics.put("totalPrice", 0L);
@@ -185,12 +199,9 @@ public class CartServiceImpl implements CartService {
             int totalQuantity = 0;
             long totalPrice = 0L;
             
-            for (Map<String, Object> item : userCart.values()) {
-                Integer quantity = (Integer) item.get("quantity");
-                Long price = (Long) item.get("price");
-                
-                totalQuantity += quantity;
-                totalPrice += price * quantity;
+            for (CartItem item : userCart) {
+                totalQuantity += item.getQuantity();
+                totalPrice += item.getPrice() * item.getQuantity();
             }
             
             statistics.put("totalItems", userCart.size());
@@ -198,7 +209,7 @@ public class CartServiceImpl implements CartService {
             statistics.put("totalPrice", totalPrice);
             statistics.put("uniqueProducts", userCart.size());
             
-            Long discountAmount = mockCalculateDiscount(userId, totalPrice);
+            Long discountAmount = mockProductCatalog.calculateDiscount(userId, totalPrice);
             statistics.put("discountAmount", discountAmount);
             statistics.put("finalPrice", totalPrice - discountAmount);
             
@@ -211,24 +222,55 @@ public class CartServiceImpl implements CartService {
         }
     }
     
+    /**
+     * 先按商品合并数量，库存和价格各批量查询一次，再在一次加锁内写入购物车
+     */
     @Override
     public int batchAddToCart(Long userId, List<Map<String, Object>> items) {
         logger.info("批量添加商品到购物车 - userId: {}, 商品数: {}", userId, items.size());
         
-        int successCount = 0;
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Integer> itemCounts = new HashMap<>();
         for (Map<String, Object> item : items) {
             try {
                 Long productId = ((Number) item.get("productId")).longValue();
                 Integer quantity = ((Number) item.get("quantity")).intValue();
                 
-                if (addToCart(userId, productId, quantity)) {
-                    successCount++;
-                }
+                quantities.merge(productId, quantity, Integer::sum);
+                itemCounts.merge(productId, 1, Integer::sum);
             } catch (Exception e) {
                 logger.error("批量添加单个商品失败", e);
             }
         }
         
+        int successCount = 0;
+        try {
+            Set<Long> available = mockProductCatalog.batchCheckInventory(quantities);
+            Map<Long, Long> prices = mockProductCatalog.batchGetProductPrices(available);
+            
+            long[] productIds = new long[available.size()];
+            int[] mergedQuantities = new int[available.size()];
+            long[] mergedPrices = new long[available.size()];
+            int index = 0;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Long productId = entry.getKey();
+                if (!available.contains(productId)) {
+                    logger.warn("库存不足 - productId: {}, quantity: {}", productId, entry.getValue());
+                    continue;
+                }
+                productIds[index] = productId;
+                mergedQuantities[index] = entry.getValue();
+                mergedPrices[index] = prices.get(productId);
+                index++;
+                successCount += itemCounts.get(productId);
+            }
+            
+            cartStore.mergeAll(userId, productIds, mergedQuantities, mergedPrices, System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("批量添加商品到购物车失败 - userId: {}", userId, e);
+            return 0;
+        }
+        
         logger.info("批量添加完成 - userId: {}, 成功: {}/{}", userId, successCount, items.size());
         return successCount;
     }
@@ -238,31 +280,9 @@ public class CartServiceImpl implements CartService {
         logger.info("清理过期购物车 - expireDays: {}", expireDays);
         
         long expireTime = System.currentTimeMillis() - (expireDays * 24L * 60 * 60 * 1000);
-        int cleanedCount = 0;
         
         try {
-            Iterator<Map.Entry<Long, Map<Long, Map<String, Object>>>> userIterator = cartStorage.entrySet().iterator();
-            
-            while (userIterator.hasNext()) {
-                Map.Entry<Long, Map<Long, Map<String, Object>>> userEntry = userIterator.next();
-                Map<Long, Map<String, Object>> userCart = userEntry.getValue();
-                
-                Iterator<Map.Entry<Long, Map<String, Object>>> itemIterator = userCart.entrySet().iterator();
-                while (itemIterator.hasNext()) {
-                    Map.Entry<Long, Map<String, Object>> itemEntry = itemIterator.next();
-                    Map<String, Object> item = itemEntry.getValue();
-                    
-                    Long updateTime = (Long) item.get("updateTime");
-                    if (updateTime != null && updateTime < expireTime) {
-                        itemIterator.remove();
-                        cleanedCount++;
-                    }
-                }
-                
-                if (userCart.isEmpty()) {
-                    userIterator.remove();
-                }
-            }
+            int cleanedCount = cartStore.removeExpired(expireTime);
             
             logger.info("清理过期购物车完成 - 清理商品数: {}", cleanedCount);
             return cleanedCount;
@@ -273,16 +293,14 @@ public class CartServiceImpl implements CartService {
         }
     }
     
-    private boolean mockCheckInventory(Long productId, Integer quantity) {
-        return Math.random() < 0.9;
-    }
-    
-    private Long mockGetProductPrice(Long productId) {
-        return 1000L + (long)(Math.random() * 99000);
-    }
-    
-    private Long mockCalculateDiscount(Long userId, Long totalPrice) {
-        double discountRate = 0.05 + Math.random() * 0.1;
-        return (long)(totalPrice * discountRate);
+    private void reapExpiredItems(long expireMillis) {
+        try {
+            int removed = cartStore.removeExpired(System.currentTimeMillis() - expireMillis);
+            if (removed > 0) {
+                logger.info("后台清理过期购物车商品 - 清理商品数: {}", removed);
+            }
+        } catch (Exception e) {
+            logger.error("后台清理过期购物车商品失败", e);
+        }
     }
 }
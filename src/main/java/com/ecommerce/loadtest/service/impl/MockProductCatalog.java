@@ -0,0 +1,58 @@
+package com.ecommerce.loadtest.service.impl;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模拟商品目录
+ * 购物车各后端共用的库存校验、价格查询和优惠计算，压测环境下不访问真实的商品和库存服务
+ *
+ * @author rakkaus
+ */
+@Component
+public class MockProductCatalog {
+
+    public boolean checkInventory(Long productId, Integer quantity) {
+        return Math.random() < 0.9;
+    }
+
+    public Long getProductPrice(Long productId) {
+        return 1000L + (long) (Math.random() * 99000);
+    }
+
+    /**
+     * 批量校验库存，一次调用返回所有库存充足的商品ID
+     *
+     * @param quantities 商品ID到需要数量的映射
+     */
+    public Set<Long> batchCheckInventory(Map<Long, Integer> quantities) {
+        Set<Long> available = new HashSet<>(quantities.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (checkInventory(entry.getKey(), entry.getValue())) {
+                available.add(entry.getKey());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * 批量查询价格，一次调用返回所有商品的价格
+     */
+    public Map<Long, Long> batchGetProductPrices(Collection<Long> productIds) {
+        Map<Long, Long> prices = new HashMap<>(productIds.size() * 4 / 3 + 1);
+        for (Long productId : productIds) {
+            prices.put(productId, getProductPrice(productId));
+        }
+        return prices;
+    }
+
+    public Long calculateDiscount(Long userId, Long totalPrice) {
+        double discountRate = 0.05 + Math.random() * 0.1;
+        return (long) (totalPrice * discountRate);
+    }
+}
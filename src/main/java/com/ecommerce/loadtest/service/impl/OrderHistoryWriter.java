@@ -0,0 +1,108 @@
+package com.ecommerce.loadtest.service.impl;
+
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.dao.LoadTestOrderMapper;
+import com.ecommerce.loadtest.entity.LoadTestOrder;
+import com.ecommerce.loadtest.utils.WriteBehindBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单历史异步持久化
+ * Redis订单创建和状态变更事件放入有界缓冲区后立即返回，后台按订单ID合并后批量upsert到load_test_order，
+ * 订单主流程不等待MySQL；缓冲区满时丢弃事件并计数，不阻塞下单和支付
+ *
+ * @author rakkaus
+ */
+@Component
+public class OrderHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderHistoryWriter.class);
+
+    @Autowired
+    private LoadTestOrderMapper loadTestOrderMapper;
+
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+
+    private WriteBehindBuffer<LoadTestOrder> writeBuffer;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        writeBuffer = new WriteBehindBuffer<>("orderHistory",
+                processing.getOrderHistoryWriteQueueCapacity(),
+                processing.getOrderHistoryWriteBatchSize(),
+                processing.getOrderHistoryWriteFlushIntervalMs(),
+                this::flushOrders);
+        writeBuffer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writeBuffer.shutdown(30000);
+    }
+
+    /**
+     * 记录订单创建
+     */
+    public void recordCreated(Long orderId, Long userId, int status, long createTime) {
+        offer(orderId, userId, status, createTime, createTime);
+    }
+
+    /**
+     * 记录订单状态变更
+     */
+    public void recordStatusChanged(Long orderId, Long userId, int status, long updateTime) {
+        offer(orderId, userId, status, null, updateTime);
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void offer(Long orderId, Long userId, int status, Long createTime, long updateTime) {
+        LoadTestOrder order = new LoadTestOrder();
+        order.setOrderId(orderId);
+        order.setBuyerId(userId);
+        order.setCurrentStatus((byte) status);
+        order.setCreateTime(createTime == null ? null : new Date(createTime));
+        order.setUpdateTime(new Date(updateTime));
+        if (!writeBuffer.offer(order)) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped % 1000 == 1) {
+                logger.warn("订单历史缓冲区已满，丢弃事件 - orderId: {}, 累计丢弃: {}", orderId, dropped);
+            }
+        }
+    }
+
+    /**
+     * 同一批内按订单ID合并，只保留最新状态，创建时间取最早出现的值；写库失败时抛出异常，整批计为失败
+     */
+    private int flushOrders(List<LoadTestOrder> events) {
+        Map<Long, LoadTestOrder> merged = new LinkedHashMap<>(events.size() * 4 / 3 + 1);
+        for (LoadTestOrder event : events) {
+            LoadTestOrder previous = merged.get(event.getOrderId());
+            if (previous != null && event.getCreateTime() == null) {
+                event.setCreateTime(previous.getCreateTime());
+            }
+            merged.put(event.getOrderId(), event);
+        }
+        loadTestOrderMapper.batchUpsert(new ArrayList<>(merged.values()));
+        logger.debug("订单历史写入 - 事件数: {}, 合并后: {}", events.size(), merged.size());
+        return 0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecommerce.loadtest.service.impl;
+
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.utils.RedisUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 订单详情本地缓存
+ * 按orderId缓存只读的订单详情，条数和写入后存活时间有上限；订单状态变更时本地立即失效，
+ * 并通过Redis频道通知其他实例失效。读Redis期间发生的失效通过分段版本号识别，避免把旧数据写回缓存
+ *
+ * @author rakkaus
+ */
+@Component
+public class OrderNearCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNearCache.class);
+
+    private static final String INVALIDATE_CHANNEL = "stress:order:invalidate";
+
+    private static final int VERSION_STRIPES = 1024;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+
+    private Cache<Long, Map<String, Object>> cache;
+
+    /**
+     * 按orderId分段的失效版本号，每次失效加一
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private MessageListener invalidateListener;
+
+    @PostConstruct
+    public void init() {
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(processing.getOrderNearCacheMaxSize())
+                .expireAfterWrite(processing.getOrderNearCacheTtlMs(), TimeUnit.MILLISECONDS)
+                .build();
+
+        invalidateListener = (message, pattern) -> {
+            try {
+                Object orderId = redisUtil.deserializeValue(message.getBody());
+                if (orderId instanceof Number) {
+                    invalidateLocal(((Number) orderId).longValue());
+                }
+            } catch (Exception e) {
+                logger.warn("解析订单缓存失效消息失败 - error: {}", e.getMessage());
+            }
+        };
+        listenerContainer.addMessageListener(invalidateListener, new ChannelTopic(INVALIDATE_CHANNEL));
+        logger.info("订单详情本地缓存已启动 - 最大条数: {}, 过期时间: {}ms",
+                processing.getOrderNearCacheMaxSize(), processing.getOrderNearCacheTtlMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        listenerContainer.removeMessageListener(invalidateListener);
+    }
+
+    public Map<String, Object> get(Long orderId) {
+        return cache.getIfPresent(orderId);
+    }
+
+    /**
+     * 读Redis之前获取版本号，写入缓存时用来判断期间是否发生过失效
+     */
+    public long version(Long orderId) {
+        return versions.get(stripe(orderId));
+    }
+
+    /**
+     * 读取期间没有发生失效时才写入缓存
+     * 检查和写入之间仍可能插入一次失效，写入后再核对一次版本号，变化了就撤回本次写入的值
+     */
+    public void put(Long orderId, long version, Map<String, Object> orderDetail) {
+        int stripe = stripe(orderId);
+        if (versions.get(stripe) != version) {
+            return;
+        }
+        cache.put(orderId, orderDetail);
+        if (versions.get(stripe) != version) {
+            cache.asMap().remove(orderId, orderDetail);
+        }
+    }
+
+    /**
+     * 订单变更后失效本地缓存，并广播给其他实例
+     */
+    public void invalidate(Long orderId) {
+        invalidateLocal(orderId);
+        try {
+            redisUtil.publish(INVALIDATE_CHANNEL, orderId);
+        } catch (Exception e) {
+            logger.warn("广播订单缓存失效失败，其他实例将在过期后刷新 - orderId: {}, error: {}", orderId, e.getMessage());
+        }
+    }
+
+    private void invalidateLocal(long orderId) {
+        versions.incrementAndGet(stripe(orderId));
+        cache.invalidate(orderId);
+    }
+
+    private static int stripe(long orderId) {
+        return (int) ((orderId ^ (orderId >>> 32)) & (VERSION_STRIPES - 1));
+    }
+}
@@ -1,13 +1,32 @@
 package com.ecommerce.loadtest.service.impl;
 
+import com.ecommerce.loadtest.config.StressTestDataConfig;
 import com.ecommerce.loadtest.service.OrderService;
 import com.ecommerce.loadtest.utils.RedisUtil;
+import com.ecommerce.loadtest.utils.SegmentIdAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -23,10 +42,112 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private RedisUtil redisUtil;
     
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+    
+    @Autowired
+    private OrderStatsTracker orderStatsTracker;
+    
+    @Autowired
+    private OrderHistoryWriter orderHistoryWriter;
+    
+    @Autowired
+    private OrderNearCache orderNearCache;
+    
     private static final String ORDER_KEY_PREFIX = "stress:order:";
-    private static final String USER_ORDER_INDEX_PREFIX = "stress:user:orders:";
+    /**
+     * 用户订单索引（ZSET，分值为createTime），全部订单为 prefix + userId，按状态为 prefix + userId + ":" + status
+     */
+    private static final String USER_ORDER_INDEX_PREFIX = "stress:user:orders:z:";
     private static final String ORDER_ID_GENERATOR_KEY = "stress:order:id:generator";
     
+    /**
+     * 订单ID起始值
+     */
+    private static final long MIN_ORDER_ID = 100000L;
+    
+    private static final int STATUS_PENDING = 1;
+    private static final int STATUS_PAID = 2;
+    private static final int STATUS_CANCELLED = 3;
+    
+    private static final long ORDER_TTL_SECONDS = 86400;
+    
+    /**
+     * Mock支付平均耗时，用于按超时时间限制支付排队长度
+     */
+    private static final long ESTIMATED_PAYMENT_MS = 200;
+    
+    /**
+     * 状态流转脚本返回码
+     */
+    private static final long TRANSITION_SUCCESS = 1;
+    private static final long TRANSITION_NOT_FOUND = 0;
+    private static final long TRANSITION_FORBIDDEN = -1;
+    
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ORDER_TRANSITION_SCRIPT = new DefaultRedisScript<>();
+    
+    static {
+        ORDER_TRANSITION_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/order_transition.lua")));
+        ORDER_TRANSITION_SCRIPT.setResultType(List.class);
+    }
+    
+    private SegmentIdAllocator orderIdAllocator;
+    
+    /**
+     * 批量创建订单的写入线程池，队列有界，写满时由调用线程执行形成背压
+     */
+    private ThreadPoolExecutor bulkWriteExecutor;
+    
+    /**
+     * 异步支付线程池，队列有界，排队满时拒绝而不是占用请求线程
+     */
+    private ThreadPoolExecutor paymentExecutor;
+    
+    private ScheduledExecutorService paymentTimeoutScheduler;
+    
+    @PostConstruct
+    public void init() {
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        orderIdAllocator = new SegmentIdAllocator(redisUtil, ORDER_ID_GENERATOR_KEY,
+                processing.getOrderIdSegmentSize(), MIN_ORDER_ID);
+        
+        int workers = Math.max(1, processing.getOrderBulkWorkers());
+        AtomicInteger threadIndex = new AtomicInteger();
+        bulkWriteExecutor = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workers * 2), r -> {
+                    Thread thread = new Thread(r, "order-bulk-writer-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        int paymentWorkers = Math.max(1, processing.getOrderPaymentWorkers());
+        // 排队长度不超过超时时间内能处理完的支付数（队尾请求出队后还要留出一次支付的耗时），避免请求在队列里就已超时
+        long drainableInTimeout = paymentWorkers * (processing.getOrderPaymentTimeoutMs() - ESTIMATED_PAYMENT_MS) / ESTIMATED_PAYMENT_MS;
+        int paymentQueueCapacity = (int) Math.max(1, Math.min(processing.getOrderPaymentQueueCapacity(), drainableInTimeout));
+        AtomicInteger paymentThreadIndex = new AtomicInteger();
+        paymentExecutor = new ThreadPoolExecutor(paymentWorkers, paymentWorkers, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(paymentQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "order-payment-" + paymentThreadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        paymentTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-payment-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("支付线程池初始化完成 - 线程数: {}, 队列容量: {}", paymentWorkers, paymentQueueCapacity);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        orderIdAllocator.shutdown();
+        bulkWriteExecutor.shutdown();
+        paymentExecutor.shutdown();
+        paymentTimeoutScheduler.shutdownNow();
+    }
+    
     @Override
     public Long createOrder(Long userId, List<Map<String, Object>> cartItems) {
         logger.info("创建订单 - userId: {}, 商品数: {}", userId, cartItems.size());
@@ -37,39 +158,31 @@ public class OrderServiceImpl implements OrderService {
         }
         
         try {
-            Long orderId = redisUtil.incr(ORDER_ID_GENERATOR_KEY, 1);
-            if (orderId == 1) {
-                orderId = 100000L;
-                redisUtil.set(ORDER_ID_GENERATOR_KEY, orderId);
-            }
+            Long orderId = orderIdAllocator.nextId();
             
-            long totalPrice = 0L;
-            for (Map<String, Object> item : cartItems) {
-                Long price = ((Number) item.get("price")).longValue();
-                Integer quantity = ((Number) item.get("quantity")).intValue();
-                totalPrice += price * quantity;
-            }
+            long totalPrice = calculateTotalPrice(cartItems);
             
             if (!mockCheckInventoryForOrder(cartItems)) {
                 logger.warn("库存不足 - userId: {}", userId);
                 return null;
             }
             
-            Map<String, Object> orderInfo = new HashMap<>();
-            orderInfo.put("orderId", orderId);
-            orderInfo.put("userId", userId);
-            orderInfo.put("items", new ArrayList<>(cartItems));
-            orderInfo.put("totalPrice", totalPrice);
-            orderInfo.put("status", 1);
-            orderInfo.put("createTime", System.currentTimeMillis());
-            orderInfo.put("updateTime", System.currentTimeMillis());
-            orderInfo.put("shippingAddress", mockGetShippingAddress(userId));
+            Map<String, Object> orderInfo = buildOrderInfo(orderId, userId, cartItems, totalPrice);
             
-            redisUtil.hmset(ORDER_KEY_PREFIX + orderId, orderInfo, 86400);
+            redisUtil.hmset(ORDER_KEY_PREFIX + orderId, orderInfo, ORDER_TTL_SECONDS);
             
-            String userOrderKey = USER_ORDER_INDEX_PREFIX + userId;
-            redisUtil.sSet(userOrderKey, orderId);
-            redisUtil.expire(userOrderKey, 86400);
+            long createTime = (Long) orderInfo.get("createTime");
+            String allIndexKey = userOrderIndexKey(userId, null);
+            String pendingIndexKey = userOrderIndexKey(userId, STATUS_PENDING);
+            long trimBefore = indexTrimBefore();
+            redisUtil.executePipelined(operations -> {
+                operations.opsForZSet().add(allIndexKey, orderId, createTime);
+                operations.opsForZSet().add(pendingIndexKey, orderId, createTime);
+                trimOrderIndex(operations, allIndexKey, trimBefore);
+                trimOrderIndex(operations, pendingIndexKey, trimBefore);
+            });
+            orderStatsTracker.recordCreated(userId, totalPrice);
+            orderHistoryWriter.recordCreated(orderId, userId, STATUS_PENDING, createTime);
             
             logger.info("订单创建成功 - orderId: {}, totalPrice: {}", orderId, totalPrice);
             return orderId;
@@ -85,35 +198,22 @@ public class OrderServiceImpl implements OrderService {
         logger.info("取消订单 - orderId: {}, userId: {}, reason: {}", orderId, userId, reason);
         
         try {
-            Map<Object, Object> orderInfoMap = redisUtil.hmget(ORDER_KEY_PREFIX + orderId);
-            if (orderInfoMap == null || orderInfoMap.isEmpty()) {
-                logger.warn("订单不存在 - orderId: {}", orderId);
+            // 订单是否存在、归属和状态都由脚本原子校验，总价随流转结果返回，不再预读整个订单
+            long now = System.currentTimeMillis();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("cancelReason", reason);
+            fields.put("cancelTime", now);
+            fields.put("updateTime", now);
+            Long totalPrice = transitOrder(orderId, userId, STATUS_PENDING, STATUS_CANCELLED, fields, "取消");
+            if (totalPrice == null) {
                 return false;
             }
             
-            Map<String, Object> orderInfo = new HashMap<>();
-            orderInfoMap.forEach((k, v) -> orderInfo.put(k.toString(), v));
+            orderStatsTracker.recordCancelled(userId, totalPrice);
+            orderNearCache.invalidate(orderId);
+            orderHistoryWriter.recordStatusChanged(orderId, userId, STATUS_CANCELLED, now);
             
-            Long orderUserId = ((Number) orderInfo.get("userId")).longValue();
-            if (!userId.equals(orderUserId)) {
-                logger.warn("无权限取消订单 - orderId: {}, userId: {}", orderId, userId);
-                return false;
-            }
-            
-            Integer currentStatus = (Integer) orderInfo.get("status");
-            if (currentStatus != 1) {
-                logger.warn("订单状态不允许取消 - orderId: {}, status: {}", orderId, currentStatus);
-                return false;
-            }
-            
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> items = (List<Map<String, Object>>) orderInfo.get("items");
-            mockRestoreInventory(items);
-            
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "status", 3);
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "cancelReason", reason);
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "cancelTime", System.currentTimeMillis());
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "updateTime", System.currentTimeMillis());
+            mockRestoreInventory(orderId);
             
             mockSendOrderNotification(userId, orderId, "ORDER_CANCELLED");
             
@@ -137,22 +237,20 @@ public class OrderServiceImpl implements OrderService {
                 return false;
             }
             
-            Map<String, Object> orderInfo = new HashMap<>();
-            orderInfoMap.forEach((k, v) -> orderInfo.put(k.toString(), v));
-            
-            Long orderUserId = ((Number) orderInfo.get("userId")).longValue();
+            // 先做一次只读预检，避免对不可支付的订单发起支付；最终以脚本中的原子校验为准
+            Long orderUserId = ((Number) orderInfoMap.get("userId")).longValue();
             if (!userId.equals(orderUserId)) {
                 logger.warn("无权限支付订单 - orderId: {}, userId: {}", orderId, userId);
                 return false;
             }
             
-            Integer currentStatus = (Integer) orderInfo.get("status");
-            if (currentStatus != 1) {
+            Object currentStatus = orderInfoMap.get("status");
+            if (currentStatus == null || ((Number) currentStatus).intValue() != STATUS_PENDING) {
                 logger.warn("订单状态不允许支付 - orderId: {}, status: {}", orderId, currentStatus);
                 return false;
             }
             
-            Long totalPrice = ((Number) orderInfo.get("totalPrice")).longValue();
+            Long totalPrice = ((Number) orderInfoMap.get("totalPrice")).longValue();
             String paymentResult = mockProcessPayment(userId, orderId, totalPrice, paymentMethod);
             
             if (!"SUCCESS".equals(paymentResult)) {
@@ -160,10 +258,26 @@ public class OrderServiceImpl implements OrderService {
                 return false;
             }
             
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "status", 2);
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "paymentMethod", paymentMethod);
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "paymentTime", System.currentTimeMillis());
-            redisUtil.hset(ORDER_KEY_PREFIX + orderId, "updateTime", System.currentTimeMillis());
+            // 状态流转开始后不再响应中断，中断只能发生在此之前
+            if (Thread.interrupted()) {
+                logger.warn("支付线程被中断，未更新订单状态 - orderId: {}", orderId);
+                return false;
+            }
+            
+            long now = System.currentTimeMillis();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("paymentMethod", paymentMethod);
+            fields.put("paymentTime", now);
+            fields.put("updateTime", now);
+            if (transitOrder(orderId, userId, STATUS_PENDING, STATUS_PAID, fields, "支付") == null) {
+                // 支付期间订单已被并发取消或支付，Mock支付无需退款，真实环境需要在此发起退款
+                logger.warn("支付完成但订单状态已变更 - orderId: {}", orderId);
+                return false;
+            }
+            
+            orderStatsTracker.recordPaid(userId, totalPrice);
+            orderNearCache.invalidate(orderId);
+            orderHistoryWriter.recordStatusChanged(orderId, userId, STATUS_PAID, now);
             
             mockSendOrderNotification(userId, orderId, "ORDER_PAID");
             
@@ -176,54 +290,71 @@ public class OrderServiceImpl implements OrderService {
         }
     }
     
+    @Override
+    public CompletableFuture<Boolean> payOrderAsync(Long orderId, Long userId, String paymentMethod) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // 支付线程和超时任务谁先置位谁处理：超时时仍在排队的请求直接放弃；已开始执行的不中断，
+        // 避免状态流转脚本已发出后统计、缓存失效和落库被跳过，超时只表示结果未知
+        AtomicBoolean claimed = new AtomicBoolean();
+        try {
+            paymentExecutor.execute(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    result.complete(payOrder(orderId, userId, paymentMethod));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("支付线程池已满，拒绝支付请求 - orderId: {}, 排队数: {}", orderId, paymentExecutor.getQueue().size());
+            result.completeExceptionally(e);
+            return result;
+        }
+        
+        long timeoutMs = stressTestDataConfig.getProcessing().getOrderPaymentTimeoutMs();
+        ScheduledFuture<?> timeout = paymentTimeoutScheduler.schedule(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                logger.warn("支付排队超时，已放弃 - orderId: {}, timeout: {}ms", orderId, timeoutMs);
+                result.completeExceptionally(new TimeoutException("支付排队超时 - orderId: " + orderId));
+            } else if (result.completeExceptionally(new TimeoutException("支付超时 - orderId: " + orderId))) {
+                logger.warn("支付超时，结果以订单状态为准 - orderId: {}, timeout: {}ms", orderId, timeoutMs);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((success, e) -> timeout.cancel(false));
+        return result;
+    }
+    
     @Override
     public List<Map<String, Object>> getUserOrders(Long userId, Integer status, Integer limit) {
         logger.debug("获取用户订单列表 - userId: {}, status: {}, limit: {}", userId, status, limit);
         
         try {
-            Set<Object> userOrderIds = redisUtil.sGet(USER_ORDER_INDEX_PREFIX + userId);
+            // 索引按createTime排序，服务端直接取最新的limit条，状态过滤由对应状态的索引完成
+            long count = limit != null && limit >= 0 ? limit : -1;
+            Set<Object> userOrderIds = redisUtil.zReverseRangeByScore(userOrderIndexKey(userId, status),
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0, count);
             if (userOrderIds == null || userOrderIds.isEmpty()) {
                 return new ArrayList<>();
             }
             
             List<Map<String, Object>> orders = new ArrayList<>();
-            for (Object orderIdObj : userOrderIds) {
-                Long orderId = Long.valueOf(orderIdObj.toString());
-                Map<Object, Object> orderInfoMap = redisUtil.hmget(ORDER_KEY_PREFIX + orderId);
+            for (Map<String, Object> orderInfo : loadOrders(userOrderIds)) {
+                Map<String, Object> orderSummary = new HashMap<>();
+                orderSummary.put("orderId", orderInfo.get("orderId"));
+                orderSummary.put("totalPrice", orderInfo.get("totalPrice"));
+                orderSummary.put("status", orderInfo.get("status"));
+                orderSummary.put("createTime", orderInfo.get("createTime"));
+                orderSummary.put("updateTime", orderInfo.get("updateTime"));
                 
-                if (orderInfoMap != null && !orderInfoMap.isEmpty()) {
-                    Map<String, Object> orderInfo = new HashMap<>();
-                    orderInfoMap.forEach((k, v) -> orderInfo.put(k.toString(), v));
-                    
-                    if (status != null && !status.equals(orderInfo.get("status"))) {
-                        continue;
-                    }
-                    
-                    Map<String, Object> orderSummary = new HashMap<>();
-                    orderSummary.put("orderId", orderInfo.get("orderId"));
-                    orderSummary.put("totalPrice", orderInfo.get("totalPrice"));
-                    orderSummary.put("status", orderInfo.get("status"));
-                    orderSummary.put("createTime", orderInfo.get("createTime"));
-                    orderSummary.put("updateTime", orderInfo.get("updateTime"));
-                    
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> items = (List<Map<String, Object>>) orderInfo.get("items");
-                    orderSummary.put("itemCount", items != null ? items.size() : 0);
-                    
-                    orders.add(orderSummary);
-                    
-                    if (limit != null && orders.size() >= limit) {
-                        break;
-                    }
-                }
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> items = (List<Map<String, Object>>) orderInfo.get("items");
+                orderSummary.put("itemCount", items != null ? items.size() : 0);
+                
+                orders.add(orderSummary);
             }
             
-            orders.sort((o1, o2) -> {
-                Long time1 = (Long) o1.get("createTime");
-                Long time2 = (Long) o2.get("createTime");
-                return time2.compareTo(time1);
-            });
-            
             logger.debug("获取用户订单列表成功 - userId: {}, 订单数: {}", userId, orders.size());
             return orders;
             
@@ -238,25 +369,29 @@ public class OrderServiceImpl implements OrderService {
         logger.debug("获取订单详情 - orderId: {}, userId: {}", orderId, userId);
         
         try {
-            Map<Object, Object> orderInfoMap = redisUtil.hmget(ORDER_KEY_PREFIX + orderId);
-            if (orderInfoMap == null || orderInfoMap.isEmpty()) {
-                logger.warn("订单不存在 - orderId: {}", orderId);
-                return null;
+            Map<String, Object> orderDetail = orderNearCache.get(orderId);
+            if (orderDetail == null) {
+                long version = orderNearCache.version(orderId);
+                Map<Object, Object> orderInfoMap = redisUtil.hmget(ORDER_KEY_PREFIX + orderId);
+                if (orderInfoMap == null || orderInfoMap.isEmpty()) {
+                    logger.warn("订单不存在 - orderId: {}", orderId);
+                    return null;
+                }
+                
+                Map<String, Object> detail = new HashMap<>(orderInfoMap.size() * 4 / 3 + 2);
+                orderInfoMap.forEach((k, v) -> detail.put(k.toString(), v));
+                detail.put("statusText", getStatusText((Integer) detail.get("status")));
+                // 缓存中的详情由多个请求共享，返回只读视图
+                orderDetail = Collections.unmodifiableMap(detail);
+                orderNearCache.put(orderId, version, orderDetail);
             }
             
-            Map<String, Object> orderInfo = new HashMap<>();
-            orderInfoMap.forEach((k, v) -> orderInfo.put(k.toString(), v));
-            
-            Long orderUserId = ((Number) orderInfo.get("userId")).longValue();
+            Long orderUserId = ((Number) orderDetail.get("userId")).longValue();
             if (!userId.equals(orderUserId)) {
                 logger.warn("无权限查看订单 - orderId: {}, userId: {}", orderId, userId);
                 return null;
             }
             
-            Map<String, Object> orderDetail = new HashMap<>(orderInfo);
-            Integer statusValue = (Integer) orderInfo.get("status");
-            orderDetail.put("statusText", getStatusText(statusValue));
-            
             logger.debug("获取订单详情成功 - orderId: {}", orderId);
             return orderDetail;
             
@@ -268,26 +403,81 @@ public class OrderServiceImpl implements OrderService {
     
     @Override
     public int batchCreateOrders(List<Map<String, Object>> orderRequests) {
+        int successCount = 0;
+        for (Long orderId : bulkCreateOrders(orderRequests)) {
+            if (orderId != null) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+    
+    @Override
+    public List<Long> bulkCreateOrders(List<Map<String, Object>> orderRequests) {
         logger.info("批量创建订单 - 请求数量: {}", orderRequests.size());
+        long start = System.currentTimeMillis();
         
-        int successCount = 0;
-        for (Map<String, Object> request : orderRequests) {
+        // 先在本地完成校验和组装，只为通过校验的请求分配ID
+        Long[] orderIds = new Long[orderRequests.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>(orderRequests.size());
+        List<Long> userIds = new ArrayList<>(orderRequests.size());
+        List<Long> totalPrices = new ArrayList<>(orderRequests.size());
+        for (int i = 0; i < orderRequests.size(); i++) {
             try {
+                Map<String, Object> request = orderRequests.get(i);
                 Long userId = ((Number) request.get("userId")).longValue();
                 @SuppressWarnings("unchecked")
                 List<Map<String, Object>> cartItems = (List<Map<String, Object>>) request.get("cartItems");
-                
-                Long orderId = createOrder(userId, cartItems);
-                if (orderId != null) {
-                    successCount++;
+                if (cartItems == null || cartItems.isEmpty() || !mockCheckInventoryForOrder(cartItems)) {
+                    continue;
                 }
+                userIds.add(userId);
+                totalPrices.add(calculateTotalPrice(cartItems));
+                acceptedIndexes.add(i);
             } catch (Exception e) {
-                logger.error("批量创建单个订单失败", e);
+                logger.error("批量创建单个订单校验失败 - index: {}", i, e);
             }
         }
+        if (acceptedIndexes.isEmpty()) {
+            logger.info("批量创建订单完成 - 成功: 0/{}", orderRequests.size());
+            return Arrays.asList(orderIds);
+        }
         
-        logger.info("批量创建订单完成 - 成功: {}/{}", successCount, orderRequests.size());
-        return successCount;
+        long firstOrderId = orderIdAllocator.leaseRange(acceptedIndexes.size());
+        int chunkSize = Math.max(1, stressTestDataConfig.getProcessing().getOrderBulkChunkSize());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < acceptedIndexes.size(); from += chunkSize) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(from + chunkSize, acceptedIndexes.size());
+            futures.add(CompletableFuture.runAsync(() -> {
+                List<Map<String, Object>> chunk = new ArrayList<>(chunkTo - chunkFrom);
+                for (int j = chunkFrom; j < chunkTo; j++) {
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> cartItems =
+                            (List<Map<String, Object>>) orderRequests.get(acceptedIndexes.get(j)).get("cartItems");
+                    chunk.add(buildOrderInfo(firstOrderId + j, userIds.get(j), cartItems, totalPrices.get(j)));
+                }
+                try {
+                    writeOrders(chunk);
+                    for (int j = chunkFrom; j < chunkTo; j++) {
+                        orderIds[acceptedIndexes.get(j)] = firstOrderId + j;
+                    }
+                } catch (Exception e) {
+                    logger.error("批量写入订单失败 - orderId范围: [{}, {}]", firstOrderId + chunkFrom, firstOrderId + chunkTo - 1, e);
+                }
+            }, bulkWriteExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        int successCount = 0;
+        for (Long orderId : orderIds) {
+            if (orderId != null) {
+                successCount++;
+            }
+        }
+        logger.info("批量创建订单完成 - 成功: {}/{}, 耗时: {}ms", successCount, orderRequests.size(),
+                System.currentTimeMillis() - start);
+        return Arrays.asList(orderIds);
     }
     
     @Override
@@ -321,43 +511,13 @@ public class OrderServiceImpl implements OrderService {
         logger.debug("获取订单统计信息 - userId: {}", userId);
         
         try {
-            Map<String, Object> statistics = new HashMap<>();
-            
+            // 计数在订单创建和状态流转时增量维护，全局和用户统计都是常数时间读取
             if (userId != null) {
-                Set<Object> userOrderIds = redisUtil.sGet(USER_ORDER_INDEX_PREFIX + userId);
-                if (userOrderIds == null) {
-                    userOrderIds = new HashSet<>();
-                }
-                
-                int totalOrders = userOrderIds.size();
-                int paidOrders = 0;
-                int cancelledOrders = 0;
-                long totalAmount = 0L;
-                
-                for (Object orderIdObj : userOrderIds) {
-                    Long orderId = Long.valueOf(orderIdObj.toString());
-                    Map<Object, Object> orderInfoMap = redisUtil.hmget(ORDER_KEY_PREFIX + orderId);
-                    
-                    if (orderInfoMap != null && !orderInfoMap.isEmpty()) {
-                        Integer statusValue = (Integer) orderInfoMap.get("status");
-                        Long totalPrice = ((Number) orderInfoMap.get("totalPrice")).longValue();
-                        
-                        if (statusValue == 2) paidOrders++;
-                        if (statusValue == 3) cancelledOrders++;
-                        if (statusValue == 2) totalAmount += totalPrice;
-                    }
-                }
-                
-                statistics.put("totalOrders", totalOrders);
-                statistics.put("paidOrders", paidOrders);
-                statistics.put("cancelledOrders", cancelledOrders);
-                statistics.put("pendingOrders", totalOrders - paidOrders - cancelledOrders);
-                statistics.put("totalAmount", totalAmount);
-                
-            } else {
-                statistics.put("message", "全局统计暂不支持，请指定userId");
+                return orderStatsTracker.getUserStatistics(userId);
             }
-            
+            Map<String, Object> statistics = orderStatsTracker.getGlobalStatistics();
+            // 订单历史缓冲区满时丢弃的事件数，非0说明load_test_order缺少部分订单或状态
+            statistics.put("historyDroppedEvents", orderHistoryWriter.getDroppedCount());
             return statistics;
             
         } catch (Exception e) {
@@ -373,6 +533,150 @@ public class OrderServiceImpl implements OrderService {
         return 0;
     }
     
+    /**
+     * 通过Lua脚本原子地完成订单状态流转：校验归属和当前状态，在同一次往返中写入状态及附带字段，
+     * 并把订单从原状态索引移到新状态索引；索引分值取自订单hash中的createTime
+     *
+     * @return 流转成功返回订单总价，失败返回null
+     */
+    private Long transitOrder(Long orderId, Long userId, int fromStatus, int toStatus,
+                              Map<String, Object> fields, String action) {
+        Object[] args = new Object[6 + fields.size() * 2];
+        args[0] = redisUtil.serializeHashValue(userId);
+        args[1] = redisUtil.serializeHashValue(fromStatus);
+        args[2] = redisUtil.serializeHashValue(toStatus);
+        args[3] = redisUtil.serializeValue(orderId);
+        args[4] = ORDER_TTL_SECONDS;
+        args[5] = indexTrimBefore();
+        int i = 6;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            args[i++] = field.getKey();
+            args[i++] = redisUtil.serializeHashValue(field.getValue());
+        }
+        
+        List<String> keys = Arrays.asList(ORDER_KEY_PREFIX + orderId,
+                userOrderIndexKey(userId, fromStatus), userOrderIndexKey(userId, toStatus));
+        List<?> result = redisUtil.execute(ORDER_TRANSITION_SCRIPT, keys, args);
+        long code = ((Number) result.get(0)).longValue();
+        if (code == TRANSITION_SUCCESS) {
+            // 数值字段在两种编码下都是十进制文本
+            return Long.parseLong(String.valueOf(result.get(3)));
+        }
+        if (code == TRANSITION_NOT_FOUND) {
+            logger.warn("订单不存在 - orderId: {}", orderId);
+        } else if (code == TRANSITION_FORBIDDEN) {
+            logger.warn("无权限{}订单 - orderId: {}, userId: {}", action, orderId, userId);
+        } else {
+            logger.warn("订单状态不允许{} - orderId: {}, status: {}", action, orderId, result.get(1));
+        }
+        return null;
+    }
+    
+    /**
+     * 创建时间早于该值的订单hash已过期，对应的索引成员可以删除
+     */
+    private static long indexTrimBefore() {
+        return System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ORDER_TTL_SECONDS);
+    }
+    
+    /**
+     * 删除索引中订单hash已过期的成员并续期索引；索引随写入续期，不裁剪会无限增长
+     */
+    private static void trimOrderIndex(RedisOperations<String, Object> operations, String indexKey, long trimBefore) {
+        // 分值为毫秒整数，[-inf, trimBefore - 1] 等价于 ZREMRANGEBYSCORE key -inf (trimBefore
+        operations.opsForZSet().removeRangeByScore(indexKey, Double.NEGATIVE_INFINITY, trimBefore - 1);
+        operations.expire(indexKey, ORDER_TTL_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 在一个管道中写入一批订单hash及用户索引，再批量累加统计
+     */
+    private void writeOrders(List<Map<String, Object>> orders) {
+        Set<String> indexKeys = new HashSet<>();
+        Map<Long, List<Long>> userAmounts = new HashMap<>();
+        redisUtil.executePipelined(operations -> {
+            for (Map<String, Object> orderInfo : orders) {
+                Long orderId = (Long) orderInfo.get("orderId");
+                Long userId = (Long) orderInfo.get("userId");
+                long createTime = (Long) orderInfo.get("createTime");
+                String orderKey = ORDER_KEY_PREFIX + orderId;
+                operations.opsForHash().putAll(orderKey, orderInfo);
+                operations.expire(orderKey, ORDER_TTL_SECONDS, TimeUnit.SECONDS);
+                
+                String allIndexKey = userOrderIndexKey(userId, null);
+                String pendingIndexKey = userOrderIndexKey(userId, STATUS_PENDING);
+                operations.opsForZSet().add(allIndexKey, orderId, createTime);
+                operations.opsForZSet().add(pendingIndexKey, orderId, createTime);
+                indexKeys.add(allIndexKey);
+                indexKeys.add(pendingIndexKey);
+                
+                userAmounts.computeIfAbsent(userId, id -> new ArrayList<>()).add((Long) orderInfo.get("totalPrice"));
+            }
+            long trimBefore = indexTrimBefore();
+            for (String indexKey : indexKeys) {
+                trimOrderIndex(operations, indexKey, trimBefore);
+            }
+        });
+        orderStatsTracker.recordCreatedBatch(userAmounts);
+        for (Map<String, Object> orderInfo : orders) {
+            orderHistoryWriter.recordCreated((Long) orderInfo.get("orderId"), (Long) orderInfo.get("userId"),
+                    STATUS_PENDING, (Long) orderInfo.get("createTime"));
+        }
+    }
+    
+    private long calculateTotalPrice(List<Map<String, Object>> cartItems) {
+        long totalPrice = 0L;
+        for (Map<String, Object> item : cartItems) {
+            Long price = ((Number) item.get("price")).longValue();
+            Integer quantity = ((Number) item.get("quantity")).intValue();
+            totalPrice += price * quantity;
+        }
+        return totalPrice;
+    }
+    
+    private Map<String, Object> buildOrderInfo(Long orderId, Long userId, List<Map<String, Object>> cartItems,
+                                               long totalPrice) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> orderInfo = new HashMap<>();
+        orderInfo.put("orderId", orderId);
+        orderInfo.put("userId", userId);
+        orderInfo.put("items", new ArrayList<>(cartItems));
+        orderInfo.put("totalPrice", totalPrice);
+        orderInfo.put("status", STATUS_PENDING);
+        orderInfo.put("createTime", now);
+        orderInfo.put("updateTime", now);
+        orderInfo.put("shippingAddress", mockGetShippingAddress(userId));
+        return orderInfo;
+    }
+    
+    /**
+     * 用户订单索引key，status为null时为全部订单索引
+     */
+    private String userOrderIndexKey(Long userId, Integer status) {
+        return status == null ? USER_ORDER_INDEX_PREFIX + userId : USER_ORDER_INDEX_PREFIX + userId + ":" + status;
+    }
+    
+    /**
+     * 通过一次管道往返批量读取订单hash，已过期的订单直接跳过
+     */
+    private List<Map<String, Object>> loadOrders(Collection<Object> orderIds) {
+        List<String> keys = new ArrayList<>(orderIds.size());
+        for (Object orderId : orderIds) {
+            keys.add(ORDER_KEY_PREFIX + orderId);
+        }
+        
+        List<Map<String, Object>> orders = new ArrayList<>(keys.size());
+        for (Map<Object, Object> orderInfoMap : redisUtil.hmgetAll(keys)) {
+            if (orderInfoMap == null || orderInfoMap.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> orderInfo = new HashMap<>();
+            orderInfoMap.forEach((k, v) -> orderInfo.put(k.toString(), v));
+            orders.add(orderInfo);
+        }
+        return orders;
+    }
+    
     private String getStatusText(Integer status) {
         switch (status) {
             case 1: return "待支付";
@@ -398,8 +702,8 @@ public class OrderServiceImpl implements OrderService {
         return address;
     }
     
-    private void mockRestoreInventory(List<Map<String, Object>> items) {
-        logger.debug("Mock库存回滚 - 商品数: {}", items.size());
+    private void mockRestoreInventory(Long orderId) {
+        logger.debug("Mock库存回滚 - orderId: {}", orderId);
     }
     
     private String mockProcessPayment(Long userId, Long orderId, Long amount, String paymentMethod) {
@@ -407,6 +711,7 @@ public class OrderServiceImpl implements OrderService {
             Thread.sleep(100 + (int)(Math.random() * 200));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return "INTERRUPTED";
         }
         return Math.random() < 0.95 ? "SUCCESS" : "FAILED";
     }
@@ -0,0 +1,209 @@
+package com.ecommerce.loadtest.service.impl;
+
+import com.ecommerce.loadtest.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单实时统计
+ * 订单创建、支付、取消成功后通过一次管道往返累加全局、用户、分钟级计数（HINCRBY），
+ * 下单用户数用HyperLogLog估算；查询时直接读取计数，不再逐个读取订单
+ *
+ * @author rakkaus
+ */
+@Component
+public class OrderStatsTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatsTracker.class);
+
+    private static final String GLOBAL_STATS_KEY = "stress:order:stats:global";
+    private static final String USER_STATS_KEY_PREFIX = "stress:order:stats:user:";
+    private static final String MINUTE_STATS_KEY_PREFIX = "stress:order:stats:minute:";
+    private static final String BUYERS_KEY = "stress:order:stats:buyers";
+
+    /**
+     * 用户计数与订单的过期时间一致，分钟计数保留一天
+     */
+    private static final long USER_STATS_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    private static final long MINUTE_STATS_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    /**
+     * 全局统计中返回的最近分钟数
+     */
+    private static final int RECENT_MINUTES = 5;
+
+    private static final String TOTAL_ORDERS = "total_orders";
+    private static final String PAID_ORDERS = "paid_orders";
+    private static final String CANCELLED_ORDERS = "cancelled_orders";
+    private static final String ORDER_AMOUNT = "order_amount";
+    private static final String PAID_AMOUNT = "paid_amount";
+    private static final String CANCELLED_AMOUNT = "cancelled_amount";
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 记录订单创建
+     */
+    public void recordCreated(Long userId, long amount) {
+        record(userId, TOTAL_ORDERS, ORDER_AMOUNT, amount, true);
+    }
+
+    /**
+     * 批量记录订单创建，按用户合并后一次管道往返写入
+     *
+     * @param userAmounts 用户ID到该用户本批各订单金额的映射
+     */
+    public void recordCreatedBatch(Map<Long, List<Long>> userAmounts) {
+        if (userAmounts.isEmpty()) {
+            return;
+        }
+        String minuteKey = MINUTE_STATS_KEY_PREFIX + TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        long totalCount = 0;
+        long totalAmount = 0;
+        for (List<Long> amounts : userAmounts.values()) {
+            totalCount += amounts.size();
+            for (Long amount : amounts) {
+                totalAmount += amount;
+            }
+        }
+        long batchCount = totalCount;
+        long batchAmount = totalAmount;
+        try {
+            redisUtil.executePipelined(operations -> {
+                for (Map.Entry<Long, List<Long>> entry : userAmounts.entrySet()) {
+                    String userKey = USER_STATS_KEY_PREFIX + entry.getKey();
+                    long userAmount = 0;
+                    for (Long amount : entry.getValue()) {
+                        userAmount += amount;
+                    }
+                    operations.opsForHash().increment(userKey, TOTAL_ORDERS, entry.getValue().size());
+                    operations.opsForHash().increment(userKey, ORDER_AMOUNT, userAmount);
+                    operations.expire(userKey, USER_STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                }
+                for (String key : Arrays.asList(GLOBAL_STATS_KEY, minuteKey)) {
+                    operations.opsForHash().increment(key, TOTAL_ORDERS, batchCount);
+                    operations.opsForHash().increment(key, ORDER_AMOUNT, batchAmount);
+                }
+                operations.expire(minuteKey, MINUTE_STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                operations.opsForHyperLogLog().add(BUYERS_KEY, userAmounts.keySet().toArray());
+            });
+        } catch (Exception e) {
+            logger.warn("批量更新订单统计失败 - 用户数: {}, error: {}", userAmounts.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 记录订单支付成功
+     */
+    public void recordPaid(Long userId, long amount) {
+        record(userId, PAID_ORDERS, PAID_AMOUNT, amount, false);
+    }
+
+    /**
+     * 记录订单取消成功
+     */
+    public void recordCancelled(Long userId, long amount) {
+        record(userId, CANCELLED_ORDERS, CANCELLED_AMOUNT, amount, false);
+    }
+
+    /**
+     * 全局统计：累计计数、下单用户数（估算值）和最近几分钟的计数，一次管道往返读取
+     */
+    public Map<String, Object> getGlobalStatistics() {
+        long currentMinute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        List<Object> results = redisUtil.executePipelined(operations -> {
+            operations.opsForHash().entries(GLOBAL_STATS_KEY);
+            operations.opsForHyperLogLog().size(BUYERS_KEY);
+            for (int i = 0; i < RECENT_MINUTES; i++) {
+                operations.opsForHash().entries(MINUTE_STATS_KEY_PREFIX + (currentMinute - i));
+            }
+        });
+
+        Map<String, Object> statistics = toStatistics(asMap(results.get(0)));
+        statistics.put("distinctBuyers", toLong(results.get(1)));
+
+        List<Map<String, Object>> recentMinutes = new ArrayList<>(RECENT_MINUTES);
+        for (int i = 0; i < RECENT_MINUTES; i++) {
+            Map<Object, Object> bucket = asMap(results.get(2 + i));
+            Map<String, Object> minute = new LinkedHashMap<>();
+            minute.put("minute", TimeUnit.MINUTES.toMillis(currentMinute - i));
+            minute.put("createdOrders", toLong(bucket.get(TOTAL_ORDERS)));
+            minute.put("paidOrders", toLong(bucket.get(PAID_ORDERS)));
+            minute.put("cancelledOrders", toLong(bucket.get(CANCELLED_ORDERS)));
+            minute.put("paidAmount", toLong(bucket.get(PAID_AMOUNT)));
+            recentMinutes.add(minute);
+        }
+        statistics.put("recentMinutes", recentMinutes);
+        return statistics;
+    }
+
+    /**
+     * 用户统计，一次HGETALL读取
+     */
+    public Map<String, Object> getUserStatistics(Long userId) {
+        return toStatistics(redisUtil.hmget(USER_STATS_KEY_PREFIX + userId));
+    }
+
+    private void record(Long userId, String countField, String amountField, long amount, boolean created) {
+        String userKey = USER_STATS_KEY_PREFIX + userId;
+        String minuteKey = MINUTE_STATS_KEY_PREFIX + TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        try {
+            redisUtil.executePipelined(operations -> {
+                increment(operations, GLOBAL_STATS_KEY, countField, amountField, amount);
+                increment(operations, userKey, countField, amountField, amount);
+                increment(operations, minuteKey, countField, amountField, amount);
+                operations.expire(userKey, USER_STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                operations.expire(minuteKey, MINUTE_STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                if (created) {
+                    operations.opsForHyperLogLog().add(BUYERS_KEY, userId);
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("更新订单统计失败 - userId: {}, field: {}, error: {}", userId, countField, e.getMessage());
+        }
+    }
+
+    private static void increment(RedisOperations<String, Object> operations, String key,
+                                  String countField, String amountField, long amount) {
+        operations.opsForHash().increment(key, countField, 1L);
+        operations.opsForHash().increment(key, amountField, amount);
+    }
+
+    private static Map<String, Object> toStatistics(Map<Object, Object> counters) {
+        long totalOrders = toLong(counters.get(TOTAL_ORDERS));
+        long paidOrders = toLong(counters.get(PAID_ORDERS));
+        long cancelledOrders = toLong(counters.get(CANCELLED_ORDERS));
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalOrders", totalOrders);
+        statistics.put("paidOrders", paidOrders);
+        statistics.put("cancelledOrders", cancelledOrders);
+        statistics.put("pendingOrders", totalOrders - paidOrders - cancelledOrders);
+        statistics.put("totalAmount", toLong(counters.get(PAID_AMOUNT)));
+        statistics.put("orderAmount", toLong(counters.get(ORDER_AMOUNT)));
+        statistics.put("cancelledAmount", toLong(counters.get(CANCELLED_AMOUNT)));
+        return statistics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<Object, Object>) value : Collections.emptyMap();
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(String.valueOf(value));
+    }
+}
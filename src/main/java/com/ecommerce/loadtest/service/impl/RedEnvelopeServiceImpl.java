@@ -1,7 +1,12 @@
 package com.ecommerce.loadtest.service.impl;
 
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
 import com.ecommerce.loadtest.common.Result;
+import com.ecommerce.loadtest.config.StressTestDataConfig;
 import com.ecommerce.loadtest.dao.RedEnvelopeMapper;
+import com.ecommerce.loadtest.dto.RedEnvelopeExportRow;
 import com.ecommerce.loadtest.dto.RedEnvelopeQueryDTO;
 import com.ecommerce.loadtest.entity.RedEnvelope;
 import com.ecommerce.loadtest.entity.TestBatch;
@@ -9,18 +14,35 @@ import com.ecommerce.loadtest.entity.TestUser;
 import com.ecommerce.loadtest.service.RedEnvelopeService;
 import com.ecommerce.loadtest.service.TestBatchService;
 import com.ecommerce.loadtest.service.TestUserService;
+import com.ecommerce.loadtest.utils.AimdConcurrencyLimiter;
+import com.ecommerce.loadtest.utils.AllocationPlan;
+import com.ecommerce.loadtest.utils.ConcurrentBitSet;
 import com.ecommerce.loadtest.utils.ConfigUtil;
-import com.google.common.collect.Lists;
+import com.ecommerce.loadtest.utils.RateLimiter;
+import com.ecommerce.loadtest.utils.RedisRateLimiter;
+import com.ecommerce.loadtest.utils.RedisUtil;
+import com.ecommerce.loadtest.utils.TokenBucketRateLimiter;
+import com.ecommerce.loadtest.utils.WriteBehindBuffer;
+import org.apache.ibatis.cursor.Cursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 红包服务实现类
@@ -42,11 +64,98 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
     @Autowired
     private TestBatchService testBatchService;
     
+    @Autowired
+    private RedisUtil redisUtil;
+    
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+    
+    @Autowired
+    private RedEnvelopeStatsTracker redEnvelopeStatsTracker;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     private static final Map<Long, Map<String, Object>> exportTaskStorage = new HashMap<>();
     private static final AtomicLong taskIdGenerator = new AtomicLong(2000);
     
-    public static final int TIME_INTERVAL = 1;
-    public static final int TIME_INTERVAL_MILLIS = TIME_INTERVAL * 1000;
+    private static final String RATE_LIMITER_KEY_PREFIX = "stress:limiter:redEnvelope:";
+    
+    private static final int PLATFORM_SCHEDULER_THREADS = 2;
+    
+    /**
+     * 单次平台调用最多返回的红包数
+     */
+    private static final int MAX_ENVELOPES_PER_CALL = 3;
+    
+    /**
+     * 导出时每次写入Excel的行数，以及单个sheet的最大行数（xlsx单sheet上限1048576行）
+     */
+    private static final int EXPORT_CHUNK_ROWS = 5000;
+    private static final long EXPORT_ROWS_PER_SHEET = 1000000L;
+    
+    /**
+     * 派发线程每次从游标领取的用户数
+     */
+    private static final int DISPATCH_CHUNK_USERS = 64;
+    
+    private WriteBehindBuffer<RedEnvelope> redEnvelopeWriteBuffer;
+    
+    /**
+     * 进行中批次的发放位图，每一位对应计划中的一个红包，批次完成后释放
+     */
+    private final Map<Long, ConcurrentBitSet> batchIssuedSlots = new ConcurrentHashMap<>();
+    
+    /**
+     * 本进程内正在发放的批次，同一批次的发放和续发不能并行
+     */
+    private final Set<Long> runningBatches = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * 本节点标识，发放前在test_batch上认领批次，跨节点互斥
+     */
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-"
+            + UUID.randomUUID().toString().substring(0, 8);
+    
+    /**
+     * 模拟平台调用延迟的定时器，只负责到点完成future，不执行业务逻辑
+     */
+    private ScheduledExecutorService platformScheduler;
+    
+    /**
+     * 发放期间定期更新批次心跳，心跳超时的批次才允许其他节点接管
+     */
+    private ScheduledExecutorService heartbeatScheduler;
+    
+    @PostConstruct
+    public void init() {
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        redEnvelopeWriteBuffer = new WriteBehindBuffer<>("redEnvelope",
+                processing.getRedEnvelopeWriteQueueCapacity(),
+                processing.getRedEnvelopeWriteBatchSize(),
+                processing.getRedEnvelopeWriteFlushIntervalMs(),
+                this::flushRedEnvelopes);
+        redEnvelopeWriteBuffer.start();
+        
+        platformScheduler = Executors.newScheduledThreadPool(PLATFORM_SCHEDULER_THREADS, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("red-envelope-platform-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "red-envelope-batch-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        platformScheduler.shutdownNow();
+        heartbeatScheduler.shutdownNow();
+        redEnvelopeWriteBuffer.shutdown(30000);
+    }
     
     @Override
     public int deleteByPrimaryKey(Long receiveId) {
@@ -113,109 +222,330 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long sendRedEnvelope(Long batchId, Long planId, Integer userType, Integer threadNum) throws InterruptedException {
         logger.info("开始批量发放红包 - batchId: {}, planId: {}, userType: {}, threadNum: {}", 
                    batchId, planId, userType, threadNum);
-        
-        ForkJoinPool pool = new ForkJoinPool(Math.min(threadNum, 5));
-        int redElementCount = getRedPlanElementCount(planId);
-        AtomicLong totalSentCount = new AtomicLong(0);
-        
+        checkPlanId(planId);
+        acquireLocalBatch(batchId);
+        try {
+            return startRedEnvelope(batchId, planId, userType, threadNum);
+        } finally {
+            releaseBatch(batchId);
+        }
+    }
+    
+    /**
+     * 从头开始发放，调用方已持有本进程内的批次占用
+     */
+    private Long startRedEnvelope(Long batchId, Long planId, Integer userType, Integer threadNum) throws InterruptedException {
         TestBatch batch = testBatchService.selectByPrimaryKey(batchId);
         if (batch == null) {
             logger.error("批次不存在 - batchId: {}", batchId);
             return 0L;
         }
-        
-        if (batch.getBatchStatus() == 0) {
-            TestBatch updateBatch = new TestBatch();
-            updateBatch.setBatchId(batchId);
-            updateBatch.setBatchStatus(1);
-            testBatchService.updateByPrimaryKeySelective(updateBatch);
+        if (!testBatchService.claimBatch(batchId, null, nodeId, batchStaleTimeoutMillis())) {
+            throw new IllegalStateException("批次正在其他节点发放 - batchId: " + batchId);
         }
         
+        int redElementCount = getRedPlanElementCount(planId);
+        long sendCount = batch.getTotalCount() / redElementCount;
+        
+        // 批次已在认领时置为进行中，这里只重置进度
+        TestBatch startBatch = new TestBatch();
+        startBatch.setBatchId(batchId);
+        startBatch.setRealCount(0L);
+        startBatch.setCheckpointOffset(0L);
+        startBatch.setPlanSendCount(sendCount);
+        testBatchService.updateByPrimaryKeySelective(startBatch);
+        batchIssuedSlots.remove(batchId);
+        
+        return doSendRedEnvelope(batch, planId, userType, threadNum, sendCount, 0, 0L);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Long resumeRedEnvelope(Long batchId, Long planId, Integer userType, Integer threadNum) throws InterruptedException {
+        logger.info("续发红包 - batchId: {}, planId: {}, userType: {}, threadNum: {}", 
+                   batchId, planId, userType, threadNum);
+        checkPlanId(planId);
+        acquireLocalBatch(batchId);
         try {
-            Long totalCount = batch.getTotalCount();
-            Long sendCount = totalCount / redElementCount;
-            
-            List<TestUser> userList = testUserService.queryUserList(userType);
-            logger.info("获取到{}个测试用户", userList.size());
-            
-            if (userList.isEmpty()) {
-                logger.warn("没有找到指定类型的测试用户 - userType: {}", userType);
+            TestBatch batch = testBatchService.selectByPrimaryKey(batchId);
+            if (batch == null) {
+                logger.error("批次不存在 - batchId: {}", batchId);
                 return 0L;
             }
+            if (batch.getBatchStatus() != null && batch.getBatchStatus() == 2) {
+                logger.info("批次已完成，无需续发 - batchId: {}, realCount: {}", batchId, batch.getRealCount());
+                return batch.getRealCount();
+            }
+            if (batch.getBatchStatus() == null || batch.getBatchStatus() != 1 || batch.getPlanSendCount() == null) {
+                logger.info("批次没有可用断点，从头开始发放 - batchId: {}", batchId);
+                return startRedEnvelope(batchId, planId, userType, threadNum);
+            }
+            // 状态为进行中不代表发放已经停止，只有心跳超时（或从未认领）的批次才能续发
+            if (!testBatchService.claimBatch(batchId, 1, nodeId, batchStaleTimeoutMillis())) {
+                throw new IllegalStateException("批次正在其他节点发放，不能续发 - batchId: " + batchId);
+            }
             
-            int averagePerUser = (int) (sendCount / userList.size());
-            int remainder = (int) (sendCount % userList.size());
-            
-            logger.info("发放策略 - 总次数: {}, 平均每人: {}, 余数: {}", sendCount, averagePerUser, remainder);
-            
-            int userPartitionCapacity = Math.max(1, userList.size() / Math.min(threadNum, 5));
-            List<List<TestUser>> userPartitionList = Lists.partition(userList, userPartitionCapacity);
-            
-            AtomicReference<CurrentLimiting> currentLimiting = new AtomicReference<>(new CurrentLimiting());
-            currentLimiting.get().setRedReceive(0);
-            currentLimiting.get().setStartTime(System.currentTimeMillis());
-            
-            CountDownLatch countDownLatch = new CountDownLatch(userList.size() * averagePerUser);
-            
-            userPartitionList.forEach(userGroup -> {
-                pool.submit(() -> {
-                    userGroup.parallelStream().forEach(user -> {
-                        for (int i = 0; i < averagePerUser; i++) {
-                            try {
-                                int sentCount = 0;
-                                if (userType == 1) {
-                                    sentCount = mockPlatformARedEnvelope(batch, user, planId);
-                                } else if (userType == 2) {
-                                    sentCount = mockPlatformBRedEnvelope(batch, user, planId);
-                                }
-                                
-                                totalSentCount.addAndGet(sentCount);
-                                currentLimiting.set(distributeRedEnvelopes(currentLimiting.get(), pool.getPoolSize()));
-                                
-                            } catch (Exception e) {
-                                logger.error("发放红包异常 - uid: {}", user.getUid(), e);
-                            } finally {
-                                countDownLatch.countDown();
-                            }
-                        }
-                    });
-                });
-            });
-            
-            countDownLatch.await();
+            long offset = batch.getCheckpointOffset() == null ? 0L : batch.getCheckpointOffset();
+            long sentBefore = batch.getRealCount() == null ? 0L : batch.getRealCount();
+            logger.info("从断点续发 - batchId: {}, 用户偏移: {}, 已发放: {}", batchId, offset, sentBefore);
             
-            if (remainder > 0) {
-                for (int i = 0; i < remainder && i < userList.size(); i++) {
-                    try {
-                        TestUser user = userList.get(i);
-                        int sentCount = 0;
-                        if (userType == 1) {
-                            sentCount = mockPlatformARedEnvelope(batch, user, planId);
-                        } else if (userType == 2) {
-                            sentCount = mockPlatformBRedEnvelope(batch, user, planId);
-                        }
-                        totalSentCount.addAndGet(sentCount);
-                        currentLimiting.set(distributeRedEnvelopes(currentLimiting.get(), 1));
-                    } catch (Exception e) {
-                        logger.error("发放余数红包异常", e);
-                    }
+            return doSendRedEnvelope(batch, planId, userType, threadNum, batch.getPlanSendCount(), (int) offset, sentBefore);
+        } finally {
+            releaseBatch(batchId);
+        }
+    }
+    
+    private void acquireLocalBatch(Long batchId) {
+        if (!runningBatches.add(batchId)) {
+            throw new IllegalStateException("批次正在本节点发放 - batchId: " + batchId);
+        }
+    }
+    
+    /**
+     * 释放本进程占用并清空数据库心跳，批次已被其他节点接管时数据库不受影响
+     */
+    private void releaseBatch(Long batchId) {
+        try {
+            testBatchService.releaseBatch(batchId, nodeId);
+        } catch (Exception e) {
+            logger.warn("释放批次认领失败，等待心跳超时 - batchId: {}", batchId, e);
+        } finally {
+            runningBatches.remove(batchId);
+        }
+    }
+    
+    private long batchHeartbeatMillis() {
+        return Math.max(1000L, stressTestDataConfig.getProcessing().getRedEnvelopeBatchHeartbeatMs());
+    }
+    
+    private long batchStaleTimeoutMillis() {
+        return batchHeartbeatMillis() * 3;
+    }
+    
+    private void heartbeat(DispatchContext context) {
+        Long batchId = context.batch.getBatchId();
+        try {
+            if (!testBatchService.heartbeatBatch(batchId, nodeId)) {
+                context.claimLost = true;
+                logger.error("批次已被其他节点接管，停止发放 - batchId: {}", batchId);
+            }
+        } catch (Exception e) {
+            logger.warn("更新批次心跳失败 - batchId: {}, error: {}", batchId, e.getMessage());
+        }
+    }
+    
+    /**
+     * 从指定用户偏移开始发放，每完成一段用户记录一次断点
+     * 断点只在该段红包全部落库后写入，保证断点之前的用户不会在续发时重复发放
+     */
+    private Long doSendRedEnvelope(TestBatch batch, Long planId, Integer userType, Integer threadNum,
+                                   long sendCount, int startOffset, long sentBefore) throws InterruptedException {
+        Long batchId = batch.getBatchId();
+        
+        List<TestUser> userList = testUserService.queryUserList(userType);
+        logger.info("获取到{}个测试用户", userList.size());
+        
+        if (userList.isEmpty()) {
+            logger.warn("没有找到指定类型的测试用户 - userType: {}", userType);
+            return 0L;
+        }
+        
+        // 断点按用户下标记录，固定按uid排序保证续发时用户顺序一致
+        long[] uids = userList.stream().mapToLong(TestUser::getUid).sorted().toArray();
+        AllocationPlan plan = AllocationPlan.evenly(uids, sendCount);
+        
+        int userCount = plan.size();
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        int checkpointUsers = Math.max(1, processing.getRedEnvelopeCheckpointUsers());
+        int dispatchWorkers = Math.max(1, processing.getRedEnvelopeDispatchWorkers());
+        
+        logger.info("发放策略 - 总次数: {}, 平均每人: {}, 余数: {}, 起始用户偏移: {}", 
+                   sendCount, sendCount / userCount, sendCount % userCount, startOffset);
+        
+        AimdConcurrencyLimiter concurrencyLimiter = createConcurrencyLimiter(batchId);
+        logger.info("发放并发 - 派发线程数: {}, 回调线程数: {}, 初始在途上限: {}", 
+                   dispatchWorkers, threadNum, concurrencyLimiter.getLimit());
+        
+        ExecutorService dispatchExecutor = Executors.newFixedThreadPool(dispatchWorkers, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("red-envelope-dispatch-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorService callbackExecutor = Executors.newFixedThreadPool(threadNum, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("red-envelope-callback-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        DispatchContext context = new DispatchContext(batch, planId, userType, createRateLimiter(userType),
+                concurrencyLimiter, dispatchExecutor, dispatchWorkers, callbackExecutor, sentBefore,
+                issuedSlotsOf(batchId, plan));
+        AtomicLong totalSentCount = context.totalSentCount;
+        long heartbeatMillis = batchHeartbeatMillis();
+        ScheduledFuture<?> heartbeat = heartbeatScheduler.scheduleWithFixedDelay(() -> heartbeat(context),
+                heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        
+        try {
+            long failedBefore = redEnvelopeWriteBuffer.getFailedCount();
+            for (int segmentStart = startOffset; segmentStart < userCount; segmentStart += checkpointUsers) {
+                int segmentEnd = Math.min(segmentStart + checkpointUsers, userCount);
+                sendSegment(context, plan, segmentStart, segmentEnd);
+                
+                long failedAfter = redEnvelopeWriteBuffer.flush();
+                if (failedAfter > failedBefore) {
+                    // 写缓冲区由所有批次共用，失败数可能来自其他批次，按本段有记录未落库处理：
+                    // 不写断点，清掉本进程的发放位图，续发时从上一个断点重放本段，已落库的记录由唯一键去重
+                    batchIssuedSlots.remove(batchId);
+                    throw new IllegalStateException("红包记录写库失败" + (failedAfter - failedBefore)
+                            + "条，本段不记录断点 - batchId: " + batchId + ", 用户偏移: " + segmentStart);
                 }
+                // 被接管后不再写断点，避免覆盖新节点的进度
+                checkClaim(context);
+                totalSentCount.set(persistedCount(batchId, totalSentCount.get()));
+                saveCheckpoint(batchId, segmentEnd, totalSentCount.get());
             }
+            checkClaim(context);
+            totalSentCount.set(persistedCount(batchId, totalSentCount.get()));
             
             TestBatch completeBatch = new TestBatch();
             completeBatch.setBatchId(batchId);
             completeBatch.setBatchStatus(2);
             completeBatch.setRealCount(totalSentCount.get());
+            completeBatch.setCheckpointOffset((long) userCount);
             testBatchService.updateByPrimaryKeySelective(completeBatch);
             
-            logger.info("批量发放红包完成 - 总共发放{}个红包", totalSentCount.get());
+            batchIssuedSlots.remove(batchId);
+            logger.info("批量发放红包完成 - 总共发放{}个红包, 忽略重复{}个", totalSentCount.get(), context.duplicateCount.get());
             return totalSentCount.get();
             
         } finally {
-            pool.shutdown();
+            heartbeat.cancel(false);
+            dispatchExecutor.shutdownNow();
+            callbackExecutor.shutdown();
+        }
+    }
+    
+    private static void checkClaim(DispatchContext context) {
+        if (context.claimLost) {
+            throw new IllegalStateException("批次已被其他节点接管 - batchId: " + context.batch.getBatchId());
+        }
+    }
+    
+    /**
+     * 发放计划中[segmentStart, segmentEnd)这一段用户，本段在途请求全部完成后返回
+     * 多个派发线程通过共享游标按块领取用户，先做完的线程继续领取剩余的块
+     */
+    private void sendSegment(DispatchContext context, AllocationPlan plan, int segmentStart, int segmentEnd)
+            throws InterruptedException {
+        AtomicInteger cursor = new AtomicInteger(segmentStart);
+        List<Future<Void>> workers = new ArrayList<>(context.dispatchWorkers);
+        for (int w = 0; w < context.dispatchWorkers; w++) {
+            workers.add(context.dispatchExecutor.submit(() -> {
+                dispatchChunks(context, plan, cursor, segmentEnd);
+                return null;
+            }));
+        }
+        
+        try {
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(worker -> worker.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            workers.forEach(worker -> worker.cancel(true));
+            throw new RuntimeException("派发红包异常: " + e.getCause().getMessage(), e.getCause());
+        }
+        
+        context.concurrencyLimiter.awaitIdle();
+    }
+    
+    private void dispatchChunks(DispatchContext context, AllocationPlan plan, AtomicInteger cursor, int segmentEnd)
+            throws InterruptedException {
+        int chunkStart;
+        while ((chunkStart = cursor.getAndAdd(DISPATCH_CHUNK_USERS)) < segmentEnd) {
+            int chunkEnd = Math.min(chunkStart + DISPATCH_CHUNK_USERS, segmentEnd);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                long uid = plan.getId(i);
+                long firstSlot = plan.getFirstSlot(i);
+                for (int n = 0; n < plan.getCount(i); n++) {
+                    context.rateLimiter.acquire();
+                    context.concurrencyLimiter.acquire();
+                    dispatch(context, uid, firstSlot + n);
+                }
+            }
+        }
+    }
+    
+    private void dispatch(DispatchContext context, long uid, long slot) {
+        CompletableFuture<Integer> future;
+        try {
+            future = issueRedEnvelope(context, uid, slot);
+        } catch (Exception e) {
+            context.concurrencyLimiter.release(false);
+            logger.error("发放红包异常 - uid: {}", uid, e);
+            return;
+        }
+        future.whenComplete((sentCount, ex) -> {
+            try {
+                if (ex != null) {
+                    logger.error("发放红包异常 - uid: {}", uid, ex);
+                } else {
+                    context.totalSentCount.addAndGet(sentCount);
+                }
+            } finally {
+                context.concurrencyLimiter.release(ex == null);
+            }
+        });
+    }
+    
+    private CompletableFuture<Integer> issueRedEnvelope(DispatchContext context, long uid, long slot) {
+        if (context.userType == 1) {
+            return mockPlatformARedEnvelope(context, uid, slot);
+        } else if (context.userType == 2) {
+            return mockPlatformBRedEnvelope(context, uid, slot);
+        }
+        return CompletableFuture.completedFuture(0);
+    }
+    
+    /**
+     * 获取批次的发放位图，同一进程内续发时沿用上次的位图
+     */
+    private ConcurrentBitSet issuedSlotsOf(Long batchId, AllocationPlan plan) {
+        long bits = plan.getTotal() * MAX_ENVELOPES_PER_CALL;
+        return batchIssuedSlots.compute(batchId, (id, existing) ->
+                existing != null && existing.size() == bits ? existing : new ConcurrentBitSet(bits));
+    }
+    
+    /**
+     * 以MySQL中已落库的记录数作为实际发放数，发放回调只统计入队的记录，包含被唯一键去重的部分
+     * 查询失败时沿用入队计数，下一次断点或完成时再校正
+     */
+    private long persistedCount(Long batchId, long queuedCount) {
+        try {
+            return redEnvelopeMapper.countByBatchId(batchId);
+        } catch (Exception e) {
+            logger.warn("统计批次落库记录数失败，沿用入队计数 - batchId: {}, error: {}", batchId, e.getMessage());
+            return queuedCount;
+        }
+    }
+    
+    private void saveCheckpoint(Long batchId, long offset, long sentCount) {
+        try {
+            TestBatch checkpoint = new TestBatch();
+            checkpoint.setBatchId(batchId);
+            checkpoint.setCheckpointOffset(offset);
+            checkpoint.setRealCount(sentCount);
+            testBatchService.updateByPrimaryKeySelective(checkpoint);
+            logger.info("记录发放断点 - batchId: {}, 用户偏移: {}, 已发放: {}", batchId, offset, sentCount);
+        } catch (Exception e) {
+            logger.warn("记录发放断点失败 - batchId: {}, 用户偏移: {}", batchId, offset, e);
         }
     }
     
@@ -238,22 +568,16 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
         
         CompletableFuture.runAsync(() -> {
             try {
-                Thread.sleep(2000 + new Random().nextInt(3000));
-                
-                List<RedEnvelope> envelopes = redEnvelopeMapper.selectByBatchId(batchId);
+                File file = new File(stressTestDataConfig.getFile().getTempDir(), (String) taskInfo.get("fileName"));
+                long totalCount = writeRedEnvelopeExcel(batchId, file);
                 
                 taskInfo.put("status", 1);
                 taskInfo.put("completeTime", new Date());
-                taskInfo.put("totalCount", envelopes.size());
-                taskInfo.put("fileUrl", "/mock/download/" + taskInfo.get("fileName"));
+                taskInfo.put("totalCount", totalCount);
+                taskInfo.put("fileUrl", file.getAbsolutePath());
                 
-                logger.info("红包数据导出完成 - taskId: {}, 共{}条记录", taskId, envelopes.size());
+                logger.info("红包数据导出完成 - taskId: {}, 共{}条记录, 文件: {}", taskId, totalCount, file.getAbsolutePath());
                 
-            } catch (InterruptedException e) {
-                taskInfo.put("status", 2);
-                taskInfo.put("errorMessage", "导出被中断");
-                logger.error("红包数据导出被中断 - taskId: {}", taskId);
-                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 taskInfo.put("status", 2);
                 taskInfo.put("errorMessage", e.getMessage());
@@ -264,6 +588,48 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
         return Result.success("导出任务创建成功", taskId);
     }
     
+    /**
+     * 用游标逐行读取批次红包记录并分块写入xlsx，内存占用与批次大小无关
+     * 游标需要在同一个连接上遍历，所以整个读取过程放在一个只读事务里
+     */
+    private long writeRedEnvelopeExcel(Long batchId, File file) {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("创建导出目录失败: " + dir.getAbsolutePath());
+        }
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Long totalCount = transactionTemplate.execute(status -> {
+            long count = 0;
+            int sheetNo = 0;
+            List<RedEnvelopeExportRow> chunk = new ArrayList<>(EXPORT_CHUNK_ROWS);
+            try (ExcelWriter excelWriter = EasyExcel.write(file, RedEnvelopeExportRow.class).build();
+                 Cursor<RedEnvelope> cursor = redEnvelopeMapper.streamByBatchId(batchId)) {
+                WriteSheet writeSheet = EasyExcel.writerSheet(sheetNo, "红包数据" + (sheetNo + 1)).build();
+                for (RedEnvelope redEnvelope : cursor) {
+                    if (count > 0 && count % EXPORT_ROWS_PER_SHEET == 0) {
+                        excelWriter.write(chunk, writeSheet);
+                        chunk.clear();
+                        sheetNo++;
+                        writeSheet = EasyExcel.writerSheet(sheetNo, "红包数据" + (sheetNo + 1)).build();
+                    }
+                    chunk.add(RedEnvelopeExportRow.from(redEnvelope));
+                    count++;
+                    if (chunk.size() >= EXPORT_CHUNK_ROWS) {
+                        excelWriter.write(chunk, writeSheet);
+                        chunk.clear();
+                    }
+                }
+                excelWriter.write(chunk, writeSheet);
+            } catch (IOException e) {
+                throw new RuntimeException("读取红包记录失败: " + e.getMessage(), e);
+            }
+            return count;
+        });
+        return totalCount == null ? 0L : totalCount;
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public int getRedPlanElementCount(Long planId) {
@@ -276,7 +642,7 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
     public Result<Object> getRedEnvelopeStatistics(Long batchId) {
         logger.info("获取红包统计信息 - batchId: {}", batchId);
         try {
-            Map<String, Object> statistics = redEnvelopeMapper.selectBatchStatistics(batchId);
+            Map<String, Object> statistics = redEnvelopeStatsTracker.getStatistics(batchId);
             return Result.success("查询成功", statistics);
         } catch (Exception e) {
             logger.error("获取红包统计信息失败", e);
@@ -284,97 +650,197 @@ public class RedEnvelopeServiceImpl implements RedEnvelopeService {
         }
     }
     
-    private int mockPlatformARedEnvelope(TestBatch batch, TestUser user, Long planId) throws Exception {
-        logger.debug("Mock平台A红包发放 - uid: {}, planId: {}", user.getUid(), planId);
+    private CompletableFuture<Integer> mockPlatformARedEnvelope(DispatchContext context, long uid, long slot) {
+        logger.debug("Mock平台A红包发放 - uid: {}, planId: {}", uid, context.planId);
         
-        Thread.sleep(10 + new Random().nextInt(20));
-        
-        int redCount = 1 + new Random().nextInt(3);
-        
-        for (int i = 0; i < redCount; i++) {
-            Long redEnvelopeId = planId * 1000 + user.getUid() + i;
-            RedEnvelope redEnvelope = new RedEnvelope(user.getUid(), redEnvelopeId, System.currentTimeMillis(), batch.getBatchId());
-            redEnvelope.setAmount(100L + new Random().nextInt(900));
-            redEnvelope.setPlatformType(1);
+        return mockPlatformLatency(10 + new Random().nextInt(20)).thenApplyAsync(v -> {
+            int redCount = 1 + new Random().nextInt(3);
+            int issued = 0;
             
-            insertSelective(redEnvelope);
-        }
-        
-        logger.debug("平台A红包发放成功 - uid: {}, 发放{}个红包", user.getUid(), redCount);
-        return redCount;
+            for (int i = 0; i < redCount; i++) {
+                RedEnvelope redEnvelope = new RedEnvelope(uid, redEnvelopeId(context.planId, slot, i), System.currentTimeMillis(), context.batch.getBatchId());
+                redEnvelope.setAmount(100L + new Random().nextInt(900));
+                redEnvelope.setPlatformType(1);
+                
+                if (enqueueIfAbsent(context, slot, i, redEnvelope)) {
+                    issued++;
+                }
+            }
+            
+            logger.debug("平台A红包发放成功 - uid: {}, 发放{}个红包", uid, issued);
+            return issued;
+        }, context.callbackExecutor);
     }
     
-    private int mockPlatformBRedEnvelope(TestBatch batch, TestUser user, Long planId) throws Exception {
-        logger.debug("Mock平台B红包发放 - uid: {}, planId: {}", user.getUid(), planId);
-        
-        Thread.sleep(15 + new Random().nextInt(25));
+    private CompletableFuture<Integer> mockPlatformBRedEnvelope(DispatchContext context, long uid, long slot) {
+        logger.debug("Mock平台B红包发放 - uid: {}, planId: {}", uid, context.planId);
         
-        int redCount = 1 + new Random().nextInt(2);
-        
-        for (int i = 0; i < redCount; i++) {
-            Long redEnvelopeId = planId * 2000 + user.getUid() + i;
-            RedEnvelope redEnvelope = new RedEnvelope(user.getUid(), redEnvelopeId, System.currentTimeMillis(), batch.getBatchId());
-            redEnvelope.setAmount(200L + new Random().nextInt(800));
-            redEnvelope.setPlatformType(2);
+        return mockPlatformLatency(15 + new Random().nextInt(25)).thenApplyAsync(v -> {
+            int redCount = 1 + new Random().nextInt(2);
+            int issued = 0;
+            
+            for (int i = 0; i < redCount; i++) {
+                RedEnvelope redEnvelope = new RedEnvelope(uid, redEnvelopeId(context.planId, slot, i), System.currentTimeMillis(), context.batch.getBatchId());
+                redEnvelope.setAmount(200L + new Random().nextInt(800));
+                redEnvelope.setPlatformType(2);
+                
+                if (enqueueIfAbsent(context, slot, i, redEnvelope)) {
+                    issued++;
+                }
+            }
             
-            insertSelective(redEnvelope);
+            logger.debug("平台B红包发放成功 - uid: {}, 发放{}个红包", uid, issued);
+            return issued;
+        }, context.callbackExecutor);
+    }
+    
+    /**
+     * 模拟平台接口耗时，到点后完成future，等待期间不占用任何线程
+     */
+    private CompletableFuture<Void> mockPlatformLatency(long latencyMillis) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        platformScheduler.schedule(() -> future.complete(null), latencyMillis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+    
+    /**
+     * 红包ID由计划ID和发放序号确定，同一批次重试或续发时生成相同的ID
+     */
+    private static long redEnvelopeId(Long planId, long slot, int index) {
+        return Math.multiplyExact(planId, PLAN_ID_STRIDE) + slot * MAX_ENVELOPES_PER_CALL + index;
+    }
+    
+    private static void checkPlanId(Long planId) {
+        if (planId == null || planId < 0 || planId > MAX_PLAN_ID) {
+            throw new IllegalArgumentException("红包计划ID超出范围: " + planId);
         }
-        
-        logger.debug("平台B红包发放成功 - uid: {}, 发放{}个红包", user.getUid(), redCount);
-        return redCount;
     }
     
-    private CurrentLimiting distributeRedEnvelopes(CurrentLimiting currentLimiting, int threadNum) {
-        int redReceive = currentLimiting.getRedReceive();
-        Long currentTimeMillis = currentLimiting.getStartTime();
-        
-        int maxRedEnvelopePerMinute = ConfigUtil.getInt("red_envelope_current_limiting", 300);
-        int minuteQuantity = (maxRedEnvelopePerMinute * TIME_INTERVAL) / threadNum;
-        
-        if (redReceive > minuteQuantity) {
-            long timeDifference = System.currentTimeMillis() - currentTimeMillis;
-            
-            if (timeDifference < TIME_INTERVAL_MILLIS) {
-                long sleepTime = TIME_INTERVAL_MILLIS - timeDifference;
+    /**
+     * 按发放序号在批次位图中判重，重复的红包不进入写库队列
+     */
+    private boolean enqueueIfAbsent(DispatchContext context, long slot, int index, RedEnvelope record) {
+        if (!context.issuedSlots.set(slot * MAX_ENVELOPES_PER_CALL + index)) {
+            context.duplicateCount.incrementAndGet();
+            logger.debug("重复红包已忽略 - uid: {}, redEnvelopeId: {}", record.getUid(), record.getRedEnvelopeId());
+            return false;
+        }
+        enqueueRedEnvelope(record);
+        return true;
+    }
+    
+    private void enqueueRedEnvelope(RedEnvelope record) {
+        if (record.getCreateTime() == null) {
+            record.setCreateTime(new Date());
+        }
+        if (record.getStatus() == null) {
+            record.setStatus(1);
+        }
+        try {
+            redEnvelopeWriteBuffer.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+    
+    /**
+     * 批量写入红包记录，返回未能写入的记录数；批量写失败时逐条重试，重试仍失败的记录计入返回值
+     */
+    private int flushRedEnvelopes(List<RedEnvelope> records) {
+        try {
+            int inserted = redEnvelopeMapper.batchInsert(records);
+            logger.debug("批量写入红包记录 - 条数: {}, 写入: {}", records.size(), inserted);
+            if (inserted == records.size()) {
+                redEnvelopeStatsTracker.record(records);
+            } else {
+                // 影响行数不区分哪些记录已存在，不做增量累加，直接以MySQL为准重算统计
+                logger.info("批量写入红包记录时忽略已存在记录 - 条数: {}, 写入: {}", records.size(), inserted);
+                redEnvelopeStatsTracker.reconcile(records);
+            }
+            return 0;
+        } catch (Exception e) {
+            logger.error("批量写入红包记录失败，改为逐条写入 - 条数: {}", records.size(), e);
+            List<RedEnvelope> written = new ArrayList<>(records.size());
+            int failed = 0;
+            for (RedEnvelope record : records) {
                 try {
-                    Thread.sleep(sleepTime);
-                    redReceive = 0;
-                    currentTimeMillis = System.currentTimeMillis();
-                } catch (InterruptedException e) {
-                    logger.error("红包发放等待失败", e);
-                    Thread.currentThread().interrupt();
+                    redEnvelopeMapper.insertSelective(record);
+                    written.add(record);
+                } catch (DuplicateKeyException ex) {
+                    // 已存在的记录视为写入成功，但不重复计入统计
+                    logger.debug("红包记录已存在 - uid: {}, redEnvelopeId: {}", record.getUid(), record.getRedEnvelopeId());
+                } catch (Exception ex) {
+                    failed++;
+                    logger.error("写入红包记录失败 - uid: {}, redEnvelopeId: {}", record.getUid(), record.getRedEnvelopeId(), ex);
                 }
-            } else {
-                redReceive = 0;
-                currentTimeMillis = System.currentTimeMillis();
             }
+            redEnvelopeStatsTracker.record(written);
+            return failed;
         }
-        
-        CurrentLimiting currentLimit = new CurrentLimiting();
-        currentLimit.setRedReceive(++redReceive);
-        currentLimit.setStartTime(currentTimeMillis);
-        
-        return currentLimit;
     }
     
-    private static class CurrentLimiting {
-        private int redReceive;
-        private Long startTime;
-        
-        public int getRedReceive() {
-            return redReceive;
-        }
+    /**
+     * 在途并发上限随批量写库延迟、写库失败率和发放错误率自适应调整
+     */
+    private AimdConcurrencyLimiter createConcurrencyLimiter(Long batchId) {
+        StressTestDataConfig.Processing processing = stressTestDataConfig.getProcessing();
+        return new AimdConcurrencyLimiter("redEnvelope-" + batchId,
+                processing.getRedEnvelopeInitialInFlight(),
+                processing.getRedEnvelopeMinInFlight(),
+                processing.getRedEnvelopeMaxInFlight(),
+                processing.getRedEnvelopeAimdIncreaseStep(),
+                processing.getRedEnvelopeAimdLatencyThresholdMs(),
+                processing.getRedEnvelopeAimdErrorRateThreshold(),
+                redEnvelopeWriteBuffer::getAverageFlushMillis,
+                redEnvelopeWriteBuffer::getAverageFailureRate);
+    }
+    
+    private RateLimiter createRateLimiter(Integer userType) {
+        int qpsLimit = ConfigUtil.getInt("red_envelope_current_limiting", 300);
+        int burst = ConfigUtil.getInt("red_envelope_burst", 10);
+        String mode = ConfigUtil.getValue("red_envelope_limiter_mode", "local");
+        logger.info("红包发放限流 - mode: {}, qps: {}, burst: {}", mode, qpsLimit, burst);
         
-        public void setRedReceive(int redReceive) {
-            this.redReceive = redReceive;
+        TokenBucketRateLimiter localLimiter = new TokenBucketRateLimiter(qpsLimit, burst);
+        if (!"redis".equalsIgnoreCase(mode)) {
+            return localLimiter;
         }
+        int prefetch = ConfigUtil.getInt("red_envelope_prefetch", 10);
+        return new RedisRateLimiter(redisUtil, RATE_LIMITER_KEY_PREFIX + userType, qpsLimit, burst, prefetch, localLimiter);
+    }
+    
+    /**
+     * 单个批次发放过程中共享的上下文
+     */
+    private static class DispatchContext {
         
-        public Long getStartTime() {
-            return startTime;
-        }
+        private final TestBatch batch;
+        private final Long planId;
+        private final Integer userType;
+        private final RateLimiter rateLimiter;
+        private final AimdConcurrencyLimiter concurrencyLimiter;
+        private final ExecutorService dispatchExecutor;
+        private final int dispatchWorkers;
+        private final Executor callbackExecutor;
+        private final AtomicLong totalSentCount;
+        private final ConcurrentBitSet issuedSlots;
+        private final AtomicLong duplicateCount = new AtomicLong();
+        private volatile boolean claimLost;
         
-        public void setStartTime(Long startTime) {
-            this.startTime = startTime;
+        DispatchContext(TestBatch batch, Long planId, Integer userType, RateLimiter rateLimiter,
+                        AimdConcurrencyLimiter concurrencyLimiter, ExecutorService dispatchExecutor,
+                        int dispatchWorkers, Executor callbackExecutor, long sentBefore, ConcurrentBitSet issuedSlots) {
+            this.batch = batch;
+            this.planId = planId;
+            this.userType = userType;
+            this.rateLimiter = rateLimiter;
+            this.concurrencyLimiter = concurrencyLimiter;
+            this.dispatchExecutor = dispatchExecutor;
+            this.dispatchWorkers = dispatchWorkers;
+            this.callbackExecutor = callbackExecutor;
+            this.totalSentCount = new AtomicLong(sentBefore);
+            this.issuedSlots = issuedSlots;
         }
     }
 }
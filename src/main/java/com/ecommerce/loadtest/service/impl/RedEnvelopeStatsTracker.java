@@ -0,0 +1,333 @@
+package com.ecommerce.loadtest.service.impl;
+
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.dao.RedEnvelopeMapper;
+import com.ecommerce.loadtest.entity.RedEnvelope;
+import com.ecommerce.loadtest.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 红包批次实时统计
+ * 红包记录写库成功后增量累加计数，同时维护本地计数器和Redis hash（管道批量HINCRBY），
+ * 查询时直接读取计数，不再扫描red_envelope_record；后台定期对空闲批次与MySQL对账
+ *
+ * @author rakkaus
+ */
+@Component
+public class RedEnvelopeStatsTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedEnvelopeStatsTracker.class);
+
+    private static final String STATS_KEY_PREFIX = "stress:redEnvelope:stats:";
+    private static final String STATS_USERS_KEY_PREFIX = "stress:redEnvelope:stats:users:";
+    private static final long STATS_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    private static final String TOTAL_COUNT = "total_count";
+    private static final String TOTAL_AMOUNT = "total_amount";
+    private static final String RECEIVED_COUNT = "received_count";
+    private static final String PENDING_COUNT = "pending_count";
+    private static final String PLATFORM_A_COUNT = "platform_a_count";
+    private static final String PLATFORM_B_COUNT = "platform_b_count";
+    private static final String MAX_AMOUNT = "max_amount";
+    private static final String MIN_AMOUNT = "min_amount";
+    private static final String AVG_AMOUNT = "avg_amount";
+    private static final String USER_COUNT = "user_count";
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedEnvelopeMapper redEnvelopeMapper;
+
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+
+    private final Map<Long, BatchCounters> localCounters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService reconcileScheduler;
+
+    @PostConstruct
+    public void init() {
+        long interval = Math.max(1000L, stressTestDataConfig.getProcessing().getRedEnvelopeStatsReconcileIntervalMs());
+        reconcileScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "red-envelope-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconcileScheduler.scheduleWithFixedDelay(() -> reconcileIdleBatches(interval), interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("红包统计对账任务已启动 - 间隔: {}ms", interval);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        reconcileScheduler.shutdownNow();
+    }
+
+    /**
+     * 累加已成功写库的红包记录
+     */
+    public void record(List<RedEnvelope> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Long>> deltas = new HashMap<>();
+        Map<Long, List<Object>> uids = new HashMap<>();
+        for (RedEnvelope record : records) {
+            Long batchId = record.getBatchId();
+            if (batchId == null) {
+                continue;
+            }
+            long amount = record.getAmount() == null ? 0L : record.getAmount();
+            localCounters.computeIfAbsent(batchId, id -> new BatchCounters()).add(record, amount);
+
+            Map<String, Long> delta = deltas.computeIfAbsent(batchId, id -> new HashMap<>());
+            delta.merge(TOTAL_COUNT, 1L, Long::sum);
+            delta.merge(TOTAL_AMOUNT, amount, Long::sum);
+            String statusField = statusField(record.getStatus());
+            if (statusField != null) {
+                delta.merge(statusField, 1L, Long::sum);
+            }
+            String platformField = platformField(record.getPlatformType());
+            if (platformField != null) {
+                delta.merge(platformField, 1L, Long::sum);
+            }
+            uids.computeIfAbsent(batchId, id -> new ArrayList<>()).add(record.getUid());
+        }
+
+        try {
+            redisUtil.executePipelined(operations -> {
+                for (Map.Entry<Long, Map<String, Long>> entry : deltas.entrySet()) {
+                    String key = STATS_KEY_PREFIX + entry.getKey();
+                    String usersKey = STATS_USERS_KEY_PREFIX + entry.getKey();
+                    for (Map.Entry<String, Long> field : entry.getValue().entrySet()) {
+                        operations.opsForHash().increment(key, field.getKey(), field.getValue());
+                    }
+                    operations.opsForHyperLogLog().add(usersKey, uids.get(entry.getKey()).toArray());
+                    operations.expire(key, STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                    operations.expire(usersKey, STATS_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("更新Redis红包统计失败，等待对账修正 - error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写库结果无法确定哪些记录生效时（例如INSERT IGNORE忽略了部分记录），不做增量累加，
+     * 直接以MySQL为准重算这些记录所属批次的统计。已有的本地计数器标记为刚更新，
+     * 写入停止后由定时对账再校正一次并发写入造成的偏差
+     */
+    public void reconcile(List<RedEnvelope> records) {
+        Set<Long> batchIds = new HashSet<>();
+        for (RedEnvelope record : records) {
+            if (record.getBatchId() != null) {
+                batchIds.add(record.getBatchId());
+            }
+        }
+        for (Long batchId : batchIds) {
+            BatchCounters counters = localCounters.get(batchId);
+            if (counters != null) {
+                counters.touch();
+            }
+            try {
+                Map<String, Object> actual = redEnvelopeMapper.selectBatchStatistics(batchId);
+                if (actual != null) {
+                    saveSnapshot(batchId, actual);
+                }
+            } catch (Exception e) {
+                logger.warn("红包统计重算失败，等待对账修正 - batchId: {}, error: {}", batchId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 查询批次统计：优先读Redis（集群汇总），Redis不可用时读本地计数，都没有时回源MySQL
+     */
+    public Map<String, Object> getStatistics(Long batchId) {
+        BatchCounters local = localCounters.get(batchId);
+        try {
+            Map<Object, Object> cached = redisUtil.hmget(STATS_KEY_PREFIX + batchId);
+            if (cached != null && !cached.isEmpty()) {
+                Map<String, Object> statistics = new HashMap<>();
+                cached.forEach((field, value) -> statistics.put(String.valueOf(field), value));
+                if (local != null) {
+                    statistics.put(MAX_AMOUNT, local.maxAmountOrNull());
+                    statistics.put(MIN_AMOUNT, local.minAmountOrNull());
+                }
+                statistics.put(AVG_AMOUNT, average(toLong(statistics.get(TOTAL_AMOUNT)), toLong(statistics.get(TOTAL_COUNT))));
+                // 快照中的user_count为MySQL精确值，HyperLogLog只覆盖累加过的记录，键不存在时pfCount为0，取两者较大值
+                statistics.put(USER_COUNT, Math.max(toLong(statistics.get(USER_COUNT)),
+                        redisUtil.pfCount(STATS_USERS_KEY_PREFIX + batchId)));
+                statistics.put("source", "redis");
+                return statistics;
+            }
+        } catch (Exception e) {
+            logger.warn("读取Redis红包统计失败 - batchId: {}, error: {}", batchId, e.getMessage());
+        }
+
+        if (local != null) {
+            Map<String, Object> statistics = local.toMap();
+            statistics.put("source", "memory");
+            return statistics;
+        }
+
+        Map<String, Object> statistics = redEnvelopeMapper.selectBatchStatistics(batchId);
+        if (statistics != null && toLong(statistics.get(TOTAL_COUNT)) > 0) {
+            saveSnapshot(batchId, statistics);
+        }
+        if (statistics != null) {
+            statistics.put("source", "mysql");
+        }
+        return statistics;
+    }
+
+    /**
+     * 对账：超过一个对账间隔没有新记录的批次，以MySQL为准覆盖Redis计数，然后释放本地计数器
+     */
+    private void reconcileIdleBatches(long intervalMillis) {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        for (Map.Entry<Long, BatchCounters> entry : localCounters.entrySet()) {
+            Long batchId = entry.getKey();
+            BatchCounters counters = entry.getValue();
+            if (System.nanoTime() - counters.lastUpdateNanos < idleNanos) {
+                continue;
+            }
+            try {
+                Map<String, Object> actual = redEnvelopeMapper.selectBatchStatistics(batchId);
+                if (actual == null) {
+                    continue;
+                }
+                Object cachedCount = redisUtil.hget(STATS_KEY_PREFIX + batchId, TOTAL_COUNT);
+                long actualCount = toLong(actual.get(TOTAL_COUNT));
+                if (cachedCount == null || toLong(cachedCount) != actualCount) {
+                    logger.warn("红包统计与MySQL不一致，以MySQL为准 - batchId: {}, 计数: {}, MySQL: {}",
+                            batchId, cachedCount, actualCount);
+                }
+                saveSnapshot(batchId, actual);
+                localCounters.remove(batchId, counters);
+            } catch (Exception e) {
+                logger.warn("红包统计对账失败 - batchId: {}, error: {}", batchId, e.getMessage());
+            }
+        }
+    }
+
+    private void saveSnapshot(Long batchId, Map<String, Object> statistics) {
+        Map<String, Object> snapshot = new HashMap<>();
+        for (String field : Arrays.asList(TOTAL_COUNT, TOTAL_AMOUNT, RECEIVED_COUNT, PENDING_COUNT,
+                PLATFORM_A_COUNT, PLATFORM_B_COUNT, MAX_AMOUNT, MIN_AMOUNT, USER_COUNT)) {
+            Object value = statistics.get(field);
+            if (value != null) {
+                snapshot.put(field, toLong(value));
+            }
+        }
+        redisUtil.hmset(STATS_KEY_PREFIX + batchId, snapshot, STATS_EXPIRE_SECONDS);
+    }
+
+    private static String statusField(Integer status) {
+        if (status == null) {
+            return null;
+        }
+        return status == 1 ? RECEIVED_COUNT : status == 0 ? PENDING_COUNT : null;
+    }
+
+    private static String platformField(Integer platformType) {
+        if (platformType == null) {
+            return null;
+        }
+        return platformType == 1 ? PLATFORM_A_COUNT : platformType == 2 ? PLATFORM_B_COUNT : null;
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(String.valueOf(value));
+    }
+
+    private static Double average(long sum, long count) {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    /**
+     * 单个批次的本地计数器
+     */
+    private static class BatchCounters {
+
+        private final LongAdder totalCount = new LongAdder();
+        private final LongAdder totalAmount = new LongAdder();
+        private final LongAdder receivedCount = new LongAdder();
+        private final LongAdder pendingCount = new LongAdder();
+        private final LongAdder platformACount = new LongAdder();
+        private final LongAdder platformBCount = new LongAdder();
+        private final LongAccumulator maxAmount = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final LongAccumulator minAmount = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+        private volatile long lastUpdateNanos = System.nanoTime();
+
+        void add(RedEnvelope record, long amount) {
+            totalCount.increment();
+            totalAmount.add(amount);
+            maxAmount.accumulate(amount);
+            minAmount.accumulate(amount);
+            String statusField = statusField(record.getStatus());
+            if (RECEIVED_COUNT.equals(statusField)) {
+                receivedCount.increment();
+            } else if (PENDING_COUNT.equals(statusField)) {
+                pendingCount.increment();
+            }
+            String platformField = platformField(record.getPlatformType());
+            if (PLATFORM_A_COUNT.equals(platformField)) {
+                platformACount.increment();
+            } else if (PLATFORM_B_COUNT.equals(platformField)) {
+                platformBCount.increment();
+            }
+            lastUpdateNanos = System.nanoTime();
+        }
+
+        void touch() {
+            lastUpdateNanos = System.nanoTime();
+        }
+
+        Long maxAmountOrNull() {
+            long max = maxAmount.get();
+            return max == Long.MIN_VALUE ? null : max;
+        }
+
+        Long minAmountOrNull() {
+            long min = minAmount.get();
+            return min == Long.MAX_VALUE ? null : min;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> statistics = new HashMap<>();
+            long count = totalCount.sum();
+            long amount = totalAmount.sum();
+            statistics.put(TOTAL_COUNT, count);
+            statistics.put(TOTAL_AMOUNT, amount);
+            statistics.put(RECEIVED_COUNT, receivedCount.sum());
+            statistics.put(PENDING_COUNT, pendingCount.sum());
+            statistics.put(PLATFORM_A_COUNT, platformACount.sum());
+            statistics.put(PLATFORM_B_COUNT, platformBCount.sum());
+            statistics.put(MAX_AMOUNT, maxAmountOrNull());
+            statistics.put(MIN_AMOUNT, minAmountOrNull());
+            statistics.put(AVG_AMOUNT, average(amount, count));
+            return statistics;
+        }
+    }
+}
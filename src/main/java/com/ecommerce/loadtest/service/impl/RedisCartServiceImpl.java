@@ -0,0 +1,366 @@
+package com.ecommerce.loadtest.service.impl;
+
+import com.ecommerce.loadtest.config.StressTestDataConfig;
+import com.ecommerce.loadtest.service.CartService;
+import com.ecommerce.loadtest.utils.RedisUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Redis购物车服务实现类
+ * 每个用户一个hash（stress:cart:{userId}），每个商品4个字段：q:{商品ID} 数量、p:{商品ID} 价格、
+ * a:{商品ID} 加入时间、u:{商品ID} 更新时间，数量用HINCRBY在服务端合并；
+ * 另用一个ZSET按最后更新时间索引所有购物车，供过期清理使用。
+ * stresstest.cart.backend为redis时启用，多个节点共享同一份购物车
+ *
+ * @author rakkaus
+ */
+@Service
+@ConditionalOnProperty(prefix = "stresstest.cart", name = "backend", havingValue = "redis")
+public class RedisCartServiceImpl implements CartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCartServiceImpl.class);
+
+    private static final String CART_KEY_PREFIX = "stress:cart:";
+    private static final String CART_ACTIVE_INDEX_KEY = "stress:cart:index:active";
+
+    private static final String QUANTITY_FIELD_PREFIX = "q:";
+    private static final String PRICE_FIELD_PREFIX = "p:";
+    private static final String ADD_TIME_FIELD_PREFIX = "a:";
+    private static final String UPDATE_TIME_FIELD_PREFIX = "u:";
+    private static final int FIELDS_PER_PRODUCT = 4;
+
+    /**
+     * 过期清理每批从活跃索引中取出的用户数
+     */
+    private static final int CLEANUP_BATCH_SIZE = 500;
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CART_MERGE_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> CART_UPDATE_SCRIPT = new DefaultRedisScript<>();
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CART_TOTALS_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> CART_EXPIRE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        CART_MERGE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/cart_merge.lua")));
+        CART_MERGE_SCRIPT.setResultType(List.class);
+        CART_UPDATE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/cart_update.lua")));
+        CART_UPDATE_SCRIPT.setResultType(Long.class);
+        CART_TOTALS_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/cart_totals.lua")));
+        CART_TOTALS_SCRIPT.setResultType(List.class);
+        CART_EXPIRE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/cart_expire.lua")));
+        CART_EXPIRE_SCRIPT.setResultType(Long.class);
+    }
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private StressTestDataConfig stressTestDataConfig;
+
+    @Autowired
+    private MockProductCatalog mockProductCatalog;
+
+    @Override
+    public boolean addToCart(Long userId, Long productId, Integer quantity) {
+        logger.info("添加商品到购物车 - userId: {}, productId: {}, quantity: {}", userId, productId, quantity);
+
+        try {
+            if (!mockProductCatalog.checkInventory(productId, quantity)) {
+                logger.warn("库存不足 - productId: {}, quantity: {}", productId, quantity);
+                return false;
+            }
+
+            Long price = mockProductCatalog.getProductPrice(productId);
+
+            List<?> quantities = redisUtil.execute(CART_MERGE_SCRIPT, cartKeys(userId),
+                    System.currentTimeMillis(), expireSeconds(), redisUtil.serializeValue(userId),
+                    productId, quantity, price);
+
+            logger.info("商品添加成功 - userId: {}, productId: {}, 新数量: {}", userId, productId, quantities.get(0));
+            return true;
+
+        } catch (Exception e) {
+            logger.error("添加商品到购物车失败", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeFromCart(Long userId, Long productId) {
+        logger.info("从购物车移除商品 - userId: {}, productId: {}", userId, productId);
+
+        try {
+            if (redisUtil.hdel(CART_KEY_PREFIX + userId, productFields(productId)) == 0) {
+                logger.warn("商品不在购物车中 - userId: {}, productId: {}", userId, productId);
+                return false;
+            }
+
+            logger.info("商品移除成功 - userId: {}, productId: {}", userId, productId);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("从购物车移除商品失败", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean updateCartQuantity(Long userId, Long productId, Integer quantity) {
+        logger.info("更新购物车商品数量 - userId: {}, productId: {}, quantity: {}", userId, productId, quantity);
+
+        if (quantity <= 0) {
+            return removeFromCart(userId, productId);
+        }
+
+        try {
+            if (!mockProductCatalog.checkInventory(productId, quantity)) {
+                logger.warn("库存不足 - productId: {}, quantity: {}", productId, quantity);
+                return false;
+            }
+
+            Long updated = redisUtil.execute(CART_UPDATE_SCRIPT, cartKeys(userId),
+                    System.currentTimeMillis(), expireSeconds(), redisUtil.serializeValue(userId),
+                    productId, quantity);
+            if (updated == null || updated == 0) {
+                logger.warn("商品不在购物车中 - userId: {}, productId: {}", userId, productId);
+                return false;
+            }
+
+            logger.info("商品数量更新成功 - userId: {}, productId: {}, 新数量: {}", userId, productId, quantity);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("更新购物车商品数量失败", e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getUserCart(Long userId) {
+        logger.debug("获取用户购物车 - userId: {}", userId);
+
+        try {
+            Map<Object, Object> fields = redisUtil.hmget(CART_KEY_PREFIX + userId);
+            List<Map<String, Object>> cartItems = new ArrayList<>();
+            for (Map.Entry<Object, Object> entry : fields.entrySet()) {
+                String field = String.valueOf(entry.getKey());
+                if (!field.startsWith(QUANTITY_FIELD_PREFIX)) {
+                    continue;
+                }
+                String productId = field.substring(QUANTITY_FIELD_PREFIX.length());
+
+                Map<String, Object> item = new HashMap<>();
+                item.put("productId", Long.parseLong(productId));
+                item.put("quantity", (int) toLong(entry.getValue()));
+                item.put("price", toLong(fields.get(PRICE_FIELD_PREFIX + productId)));
+                item.put("addTime", toLong(fields.get(ADD_TIME_FIELD_PREFIX + productId)));
+                item.put("updateTime", toLong(fields.get(UPDATE_TIME_FIELD_PREFIX + productId)));
+                item.put("productName", "Mock商品_" + productId);
+                item.put("productImage", "/images/product_" + productId + ".jpg");
+
+                cartItems.add(item);
+            }
+
+            logger.debug("获取用户购物车成功 - userId: {}, 商品数: {}", userId, cartItems.size());
+            return cartItems;
+
+        } catch (Exception e) {
+            logger.error("获取用户购物车失败 - userId: {}", userId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public boolean clearCart(Long userId) {
+        logger.info("清空用户购物车 - userId: {}", userId);
+
+        try {
+            String cartKey = CART_KEY_PREFIX + userId;
+            List<Object> results = redisUtil.executePipelined(operations -> {
+                operations.opsForHash().size(cartKey);
+                operations.delete(cartKey);
+                operations.opsForZSet().remove(CART_ACTIVE_INDEX_KEY, userId);
+            });
+            long fieldCount = toLong(results.get(0));
+            boolean success = fieldCount > 0;
+
+            if (success) {
+                logger.info("购物车清空成功 - userId: {}, 清理商品数: {}", userId, fieldCount / FIELDS_PER_PRODUCT);
+            } else {
+                logger.warn("用户购物车不存在 - userId: {}", userId);
+            }
+
+            return success;
+
+        } catch (Exception e) {
+            logger.error("清空用户购物车失败 - userId: {}", userId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getCartStatistics(Long userId) {
+        logger.debug("获取购物车统计信息 - userId: {}", userId);
+
+        try {
+            List<?> totals = redisUtil.execute(CART_TOTALS_SCRIPT,
+                    Collections.singletonList(CART_KEY_PREFIX + userId));
+            int uniqueProducts = (int) toLong(totals.get(0));
+            int totalQuantity = (int) toLong(totals.get(1));
+            long totalPrice = toLong(totals.get(2));
+            Map<String, Object> statistics = new HashMap<>();
+
+            if (uniqueProducts == 0) {
+                statistics.put("totalItems", 0);
+                statistics.put("totalQuantity", 0);
+                statistics.put("totalPrice", 0L);
+                statistics.put("uniqueProducts", 0);
+                return statistics;
+            }
+
+            statistics.put("totalItems", uniqueProducts);
+            statistics.put("totalQuantity", totalQuantity);
+            statistics.put("totalPrice", totalPrice);
+            statistics.put("uniqueProducts", uniqueProducts);
+
+            Long discountAmount = mockProductCatalog.calculateDiscount(userId, totalPrice);
+            statistics.put("discountAmount", discountAmount);
+            statistics.put("finalPrice", totalPrice - discountAmount);
+
+            logger.debug("购物车统计完成 - userId: {}, 商品数: {}, 总价: {}", userId, uniqueProducts, totalPrice);
+            return statistics;
+
+        } catch (Exception e) {
+            logger.error("获取购物车统计信息失败 - userId: {}", userId, e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * 先按商品合并数量，库存和价格各批量查询一次，再用一次脚本调用原子地写入所有商品
+     */
+    @Override
+    public int batchAddToCart(Long userId, List<Map<String, Object>> items) {
+        logger.info("批量添加商品到购物车 - userId: {}, 商品数: {}", userId, items.size());
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        for (Map<String, Object> item : items) {
+            try {
+                Long productId = ((Number) item.get("productId")).longValue();
+                Integer quantity = ((Number) item.get("quantity")).intValue();
+
+                quantities.merge(productId, quantity, Integer::sum);
+                itemCounts.merge(productId, 1, Integer::sum);
+            } catch (Exception e) {
+                logger.error("批量添加单个商品失败", e);
+            }
+        }
+
+        int successCount = 0;
+        try {
+            Set<Long> available = mockProductCatalog.batchCheckInventory(quantities);
+            Map<Long, Long> prices = mockProductCatalog.batchGetProductPrices(available);
+            if (available.isEmpty()) {
+                logger.info("批量添加完成 - userId: {}, 成功: 0/{}", userId, items.size());
+                return 0;
+            }
+
+            Object[] args = new Object[3 + available.size() * 3];
+            args[0] = System.currentTimeMillis();
+            args[1] = expireSeconds();
+            args[2] = redisUtil.serializeValue(userId);
+            int index = 3;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Long productId = entry.getKey();
+                if (!available.contains(productId)) {
+                    logger.warn("库存不足 - productId: {}, quantity: {}", productId, entry.getValue());
+                    continue;
+                }
+                args[index++] = productId;
+                args[index++] = entry.getValue();
+                args[index++] = prices.get(productId);
+                successCount += itemCounts.get(productId);
+            }
+
+            redisUtil.execute(CART_MERGE_SCRIPT, cartKeys(userId), args);
+        } catch (Exception e) {
+            logger.error("批量添加商品到购物车失败 - userId: {}", userId, e);
+            return 0;
+        }
+
+        logger.info("批量添加完成 - userId: {}, 成功: {}/{}", userId, successCount, items.size());
+        return successCount;
+    }
+
+    /**
+     * 只处理活跃索引中最后更新时间早于过期时间点的购物车，这些购物车内所有商品都已过期；
+     * 仍有新商品的购物车保留，由key的过期时间兜底
+     */
+    @Override
+    public int cleanupExpiredCarts(Integer expireDays) {
+        logger.info("清理过期购物车 - expireDays: {}", expireDays);
+
+        long expireTime = System.currentTimeMillis() - (expireDays * 24L * 60 * 60 * 1000);
+        int cleanedCount = 0;
+
+        try {
+            while (true) {
+                Set<Object> userIds = redisUtil.zRangeByScore(CART_ACTIVE_INDEX_KEY,
+                        0, expireTime - 1, 0, CLEANUP_BATCH_SIZE);
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                for (Object userId : userIds) {
+                    Long removed = redisUtil.execute(CART_EXPIRE_SCRIPT,
+                            Arrays.asList(CART_KEY_PREFIX + userId, CART_ACTIVE_INDEX_KEY),
+                            expireTime, redisUtil.serializeValue(userId));
+                    cleanedCount += removed == null ? 0 : removed.intValue();
+                }
+                if (userIds.size() < CLEANUP_BATCH_SIZE) {
+                    break;
+                }
+            }
+
+            logger.info("清理过期购物车完成 - 清理商品数: {}", cleanedCount);
+            return cleanedCount;
+
+        } catch (Exception e) {
+            logger.error("清理过期购物车失败", e);
+            return cleanedCount;
+        }
+    }
+
+    private static List<String> cartKeys(Long userId) {
+        return Arrays.asList(CART_KEY_PREFIX + userId, CART_ACTIVE_INDEX_KEY);
+    }
+
+    private static Object[] productFields(Long productId) {
+        return new Object[]{QUANTITY_FIELD_PREFIX + productId, PRICE_FIELD_PREFIX + productId,
+                ADD_TIME_FIELD_PREFIX + productId, UPDATE_TIME_FIELD_PREFIX + productId};
+    }
+
+    private long expireSeconds() {
+        return stressTestDataConfig.getCart().getExpireSeconds();
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(String.valueOf(value));
+    }
+}
@@ -82,6 +82,40 @@ public class TestBatchServiceImpl implements TestBatchService {
         }
     }
     
+    @Override
+    public boolean claimBatch(Long batchId, Integer batchStatus, String ownerId, long staleTimeoutMillis) {
+        logger.info("认领批次 - batchId: {}, batchStatus: {}, ownerId: {}", batchId, batchStatus, ownerId);
+        try {
+            long now = System.currentTimeMillis();
+            return testBatchMapper.claimBatch(batchId, batchStatus, ownerId, now, now - staleTimeoutMillis) > 0;
+        } catch (Exception e) {
+            logger.error("认领批次失败 - batchId: {}", batchId, e);
+            throw new RuntimeException("认领批次失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public boolean heartbeatBatch(Long batchId, String ownerId) {
+        logger.debug("更新批次心跳 - batchId: {}, ownerId: {}", batchId, ownerId);
+        try {
+            return testBatchMapper.heartbeatBatch(batchId, ownerId, System.currentTimeMillis()) > 0;
+        } catch (Exception e) {
+            logger.error("更新批次心跳失败 - batchId: {}", batchId, e);
+            throw new RuntimeException("更新批次心跳失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void releaseBatch(Long batchId, String ownerId) {
+        logger.info("释放批次 - batchId: {}, ownerId: {}", batchId, ownerId);
+        try {
+            testBatchMapper.releaseBatch(batchId, ownerId);
+        } catch (Exception e) {
+            logger.error("释放批次失败 - batchId: {}", batchId, e);
+            throw new RuntimeException("释放批次失败: " + e.getMessage(), e);
+        }
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<TestBatch> selectBatchListByStatus(Integer batchStatus) {
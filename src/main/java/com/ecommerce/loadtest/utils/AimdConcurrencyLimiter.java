@@ -0,0 +1,164 @@
+package com.ecommerce.loadtest.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * AIMD自适应并发限制器
+ * 按固定时间窗口评估下游状况：窗口内错误率、下游写入失败率或写入延迟超过阈值时按比例收缩并发上限，
+ * 否则在并发已打满的前提下线性增加上限
+ *
+ * @author rakkaus
+ */
+public class AimdConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AimdConcurrencyLimiter.class);
+
+    /**
+     * 乘性减小系数
+     */
+    private static final double BACKOFF_RATIO = 0.75;
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int increaseStep;
+    private final double latencyThresholdMillis;
+    private final double errorRateThreshold;
+
+    /**
+     * 下游写入延迟（毫秒），一般取批量写库耗时的滑动平均
+     */
+    private final DoubleSupplier latencyMillis;
+
+    /**
+     * 下游写入失败率，一般取批量写库失败记录占比的滑动平均，与窗口内请求错误率取较大值
+     */
+    private final DoubleSupplier writeErrorRate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+
+    private int limit;
+    private int inFlight;
+
+    private long windowStart = System.nanoTime();
+    private long windowSuccess;
+    private long windowError;
+    private boolean windowSaturated;
+
+    public AimdConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, int increaseStep,
+                                  double latencyThresholdMillis, double errorRateThreshold, DoubleSupplier latencyMillis,
+                                  DoubleSupplier writeErrorRate) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.increaseStep = Math.max(1, increaseStep);
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.errorRateThreshold = errorRateThreshold;
+        this.latencyMillis = latencyMillis;
+        this.writeErrorRate = writeErrorRate;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * 获取一个并发许可，在途数达到当前上限时阻塞
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                windowSaturated = true;
+                permitAvailable.await();
+            }
+            inFlight++;
+            if (inFlight >= limit) {
+                windowSaturated = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可并记录本次请求结果
+     */
+    public void release(boolean success) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (success) {
+                windowSuccess++;
+            } else {
+                windowError++;
+            }
+            long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_NANOS) {
+                adjust();
+                windowStart = now;
+            }
+            permitAvailable.signalAll();
+            if (inFlight == 0) {
+                idle.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待所有在途请求完成
+     */
+    public void awaitIdle() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight > 0) {
+                idle.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust() {
+        long total = windowSuccess + windowError;
+        double errorRate = Math.max(total == 0 ? 0 : (double) windowError / total, writeErrorRate.getAsDouble());
+        double latency = latencyMillis.getAsDouble();
+        int previous = limit;
+
+        if (errorRate > errorRateThreshold || latency > latencyThresholdMillis) {
+            limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+            if (limit != previous) {
+                logger.info("并发上限收缩 - name: {}, {} -> {}, 错误率: {}, 写入延迟: {}ms",
+                        name, previous, limit, String.format("%.3f", errorRate), String.format("%.1f", latency));
+            }
+        } else if (windowSaturated) {
+            limit = Math.min(maxLimit, limit + increaseStep);
+            if (limit != previous) {
+                logger.debug("并发上限增加 - name: {}, {} -> {}, 写入延迟: {}ms",
+                        name, previous, limit, String.format("%.1f", latency));
+            }
+        }
+
+        windowSuccess = 0;
+        windowError = 0;
+        windowSaturated = inFlight >= limit;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.loadtest.utils;
+
+/**
+ * 发放分配计划
+ * 预先计算每个用户的发放次数（余数已摊到前remainder个用户），
+ * 用紧凑的基本类型数组保存，派发时按下标读取，不再持有用户实体
+ *
+ * @author rakkaus
+ */
+public final class AllocationPlan {
+
+    private final long[] ids;
+    private final int[] counts;
+    private final long total;
+    private final long average;
+    private final long remainder;
+
+    private AllocationPlan(long[] ids, int[] counts, long total, long average, long remainder) {
+        this.ids = ids;
+        this.counts = counts;
+        this.total = total;
+        this.average = average;
+        this.remainder = remainder;
+    }
+
+    /**
+     * 把total次发放平均分配给ids，前total % ids.length个各多分配一次
+     *
+     * @param ids 参与发放的用户ID，顺序即断点偏移的顺序
+     */
+    public static AllocationPlan evenly(long[] ids, long total) {
+        if (ids.length == 0) {
+            return new AllocationPlan(ids, new int[0], 0, 0, 0);
+        }
+        long average = total / ids.length;
+        long remainder = total % ids.length;
+        if (average + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("单个用户发放次数超出范围: " + average);
+        }
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            counts[i] = (int) (i < remainder ? average + 1 : average);
+        }
+        return new AllocationPlan(ids, counts, total, average, remainder);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * 第index个用户的第一次发放在整个计划中的序号，序号范围[0, total)，同一计划内固定不变
+     */
+    public long getFirstSlot(int index) {
+        return index * average + Math.min(index, remainder);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
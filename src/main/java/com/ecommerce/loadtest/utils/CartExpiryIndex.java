@@ -0,0 +1,93 @@
+package com.ecommerce.loadtest.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+/**
+ * 购物车过期索引
+ * 按更新时间把用户ID放入固定宽度的时间桶，桶按时间有序。每个用户在同一个桶里只登记一次：
+ * 调用方在购物车里保存该用户最近登记的桶，写入仍落在这个桶时不再登记。
+ * 清理时只取出早于过期时间点的桶，只访问这些桶中的用户，开销与待清理的数据量成正比，不再遍历所有购物车。
+ * 用户之后再次写入不会从旧桶中移除，清理时由调用方按商品实际更新时间判断。
+ * 非线程安全：每个加锁分段各持有一个索引，由调用方在分段锁内访问，不同分段的写入互不阻塞
+ *
+ * @author rakkaus
+ */
+public class CartExpiryIndex {
+
+    /**
+     * 桶宽度只影响清理时需要逐个检查的用户数，不影响过期判断的精度
+     */
+    public static final long DEFAULT_BUCKET_MILLIS = 600000L;
+
+    /**
+     * 用户尚未登记到任何桶
+     */
+    public static final long NO_BUCKET = Long.MIN_VALUE;
+
+    private final long bucketMillis;
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+    public CartExpiryIndex() {
+        this(DEFAULT_BUCKET_MILLIS);
+    }
+
+    public CartExpiryIndex(long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("时间桶宽度必须大于0: " + bucketMillis);
+        }
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * 登记用户在updateTime有写入，updateTime所在的桶与indexedBucket相同时不重复登记
+     *
+     * @param indexedBucket 该用户最近一次登记的桶，没有时为NO_BUCKET
+     * @return updateTime所在的桶，调用方保存后在下次登记时传入
+     */
+    public long record(long userId, long updateTime, long indexedBucket) {
+        long bucketId = Math.floorDiv(updateTime, bucketMillis);
+        if (bucketId != indexedBucket) {
+            buckets.computeIfAbsent(bucketId, id -> new Bucket()).add(userId);
+        }
+        return bucketId;
+    }
+
+    /**
+     * 依次回调可能有商品早于expireTime的用户，同一用户可能被回调多次
+     * 整个桶都早于expireTime的桶会被移除，包含expireTime的桶只读取不移除
+     */
+    public void drainExpired(long expireTime, LongConsumer userConsumer) {
+        long currentBucketId = Math.floorDiv(expireTime, bucketMillis);
+        Map.Entry<Long, Bucket> entry;
+        while ((entry = buckets.firstEntry()) != null && entry.getKey() < currentBucketId) {
+            buckets.pollFirstEntry();
+            entry.getValue().forEach(userConsumer);
+        }
+        Bucket current = buckets.get(currentBucketId);
+        if (current != null) {
+            current.forEach(userConsumer);
+        }
+    }
+
+    private static final class Bucket {
+
+        private long[] userIds = new long[8];
+        private int size;
+
+        private void add(long userId) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size + (size >> 1));
+            }
+            userIds[size++] = userId;
+        }
+
+        private void forEach(LongConsumer userConsumer) {
+            for (int i = 0; i < size; i++) {
+                userConsumer.accept(userIds[i]);
+            }
+        }
+    }
+}
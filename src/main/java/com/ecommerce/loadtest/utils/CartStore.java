@@ -0,0 +1,82 @@
+package com.ecommerce.loadtest.utils;
+
+import com.ecommerce.loadtest.entity.CartItem;
+
+import java.util.List;
+
+/**
+ * 内存购物车存储
+ * 同一用户的复合操作（合并数量、删除空购物车等）必须是原子的，读取只返回副本
+ *
+ * @author rakkaus
+ */
+public interface CartStore {
+
+    /**
+     * 每个商品一个CartItem对象，按用户分段加锁
+     */
+    String TYPE_STRIPED = "striped";
+
+    /**
+     * 基本类型数组开放寻址存储，适合单机模拟海量用户
+     */
+    String TYPE_COMPACT = "compact";
+
+    /**
+     * 把quantity合并到购物车中的商品上，商品不存在时新增
+     *
+     * @return 合并后的数量
+     */
+    int merge(long userId, long productId, int quantity, long price, long now);
+
+    /**
+     * 在一次加锁内把多个商品合并到同一用户的购物车，三个数组下标一一对应，商品ID不能重复
+     *
+     * @return 合并的商品数
+     */
+    int mergeAll(long userId, long[] productIds, int[] quantities, long[] prices, long now);
+
+    /**
+     * 修改购物车中已有商品的数量
+     *
+     * @return 商品不在购物车中时返回false
+     */
+    boolean update(long userId, long productId, int quantity, long now);
+
+    /**
+     * 移除购物车中的商品，购物车为空时一并移除
+     */
+    boolean remove(long userId, long productId);
+
+    /**
+     * 清空用户购物车
+     *
+     * @return 清理的商品数，购物车不存在时返回-1
+     */
+    int clear(long userId);
+
+    /**
+     * 用户购物车的副本，购物车不存在时返回空列表
+     */
+    List<CartItem> snapshot(long userId);
+
+    /**
+     * 移除updateTime早于expireTime的商品
+     *
+     * @return 移除的商品数
+     */
+    int removeExpired(long expireTime);
+
+    /**
+     * 按类型创建存储，未知类型时抛出IllegalArgumentException
+     */
+    static CartStore create(String type) {
+        if (TYPE_STRIPED.equalsIgnoreCase(type)) {
+            return new StripedCartStore();
+        }
+        if (TYPE_COMPACT.equalsIgnoreCase(type)) {
+            return new CompactCartStore();
+        }
+        throw new IllegalArgumentException("不支持的购物车存储类型: " + type);
+    }
+}
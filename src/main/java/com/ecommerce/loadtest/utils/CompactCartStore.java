@@ -0,0 +1,347 @@
+package com.ecommerce.loadtest.utils;
+
+import com.ecommerce.loadtest.entity.CartItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 紧凑内存购物车存储
+ * 用户按哈希分到若干段，每段一张以long为键的开放寻址表（线性探测，删除时后移补位，不留墓碑），
+ * 每个用户的购物车是一个long[]：下标0为商品数，下标1为最近登记的过期索引桶，之后每5个long依次为商品ID、数量、价格、加入时间、更新时间。
+ * 单个购物车通常只有几个商品，顺序查找比再套一层哈希表更省内存也更快；
+ * 不再为每个商品创建Long键、Map.Entry和CartItem对象。同一段内的读写在段锁内完成，
+ * 每段有自己的过期索引，写入时在段锁内登记，清理时只访问可能过期的用户
+ *
+ * @author rakkaus
+ */
+public class CompactCartStore implements CartStore {
+
+    private static final int DEFAULT_SEGMENTS = 256;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final int INITIAL_CART_ITEMS = 2;
+
+    private static final int COUNT = 0;
+    private static final int INDEXED_BUCKET = 1;
+    private static final int HEADER = 2;
+    private static final int STRIDE = 5;
+    private static final int PRODUCT_ID = 0;
+    private static final int QUANTITY = 1;
+    private static final int PRICE = 2;
+    private static final int ADD_TIME = 3;
+    private static final int UPDATE_TIME = 4;
+
+    private final Segment[] segments;
+
+    public CompactCartStore() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    public CompactCartStore(int segmentCount) {
+        int size = Integer.highestOneBit(Math.max(1, segmentCount - 1) << 1);
+        segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public int merge(long userId, long productId, int quantity, long price, long now) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            long[] cart = slot < 0 ? null : segment.carts[slot];
+            int offset = cart == null ? -1 : find(cart, productId);
+            if (offset < 0) {
+                cart = append(cart, productId, quantity, price, now);
+                segment.put(userId, cart);
+                segment.record(userId, cart, now);
+                return quantity;
+            }
+            segment.record(userId, cart, now);
+            cart[offset + QUANTITY] = (int) (cart[offset + QUANTITY] + quantity);
+            cart[offset + PRICE] = price;
+            cart[offset + UPDATE_TIME] = now;
+            return (int) cart[offset + QUANTITY];
+        }
+    }
+
+    @Override
+    public int mergeAll(long userId, long[] productIds, int[] quantities, long[] prices, long now) {
+        if (productIds.length == 0) {
+            return 0;
+        }
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            long[] cart = slot < 0 ? null : segment.carts[slot];
+            for (int i = 0; i < productIds.length; i++) {
+                int offset = cart == null ? -1 : find(cart, productIds[i]);
+                if (offset < 0) {
+                    cart = append(cart, productIds[i], quantities[i], prices[i], now);
+                    continue;
+                }
+                cart[offset + QUANTITY] = (int) (cart[offset + QUANTITY] + quantities[i]);
+                cart[offset + PRICE] = prices[i];
+                cart[offset + UPDATE_TIME] = now;
+            }
+            segment.put(userId, cart);
+            segment.record(userId, cart, now);
+            return productIds.length;
+        }
+    }
+
+    @Override
+    public boolean update(long userId, long productId, int quantity, long now) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            int offset = slot < 0 ? -1 : find(segment.carts[slot], productId);
+            if (offset < 0) {
+                return false;
+            }
+            long[] cart = segment.carts[slot];
+            cart[offset + QUANTITY] = quantity;
+            cart[offset + UPDATE_TIME] = now;
+            segment.record(userId, cart, now);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(long userId, long productId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            int offset = slot < 0 ? -1 : find(segment.carts[slot], productId);
+            if (offset < 0) {
+                return false;
+            }
+            long[] cart = segment.carts[slot];
+            removeItem(cart, offset);
+            if (cart[COUNT] == 0) {
+                segment.removeAt(slot);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int clear(long userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            if (slot < 0) {
+                return -1;
+            }
+            int count = (int) segment.carts[slot][COUNT];
+            segment.removeAt(slot);
+            return count;
+        }
+    }
+
+    @Override
+    public List<CartItem> snapshot(long userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            int slot = segment.indexOf(userId);
+            if (slot < 0) {
+                return new ArrayList<>();
+            }
+            long[] cart = segment.carts[slot];
+            int count = (int) cart[COUNT];
+            List<CartItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER + i * STRIDE;
+                items.add(new CartItem(cart[offset + PRODUCT_ID], (int) cart[offset + QUANTITY], cart[offset + PRICE],
+                        cart[offset + ADD_TIME], cart[offset + UPDATE_TIME]));
+            }
+            return items;
+        }
+    }
+
+    /**
+     * 逐段清理，每段的索引和该段的购物车在一次加锁内处理
+     */
+    @Override
+    public int removeExpired(long expireTime) {
+        int[] removed = new int[1];
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.expiryIndex.drainExpired(expireTime,
+                        userId -> removed[0] += removeExpired(segment, userId, expireTime));
+            }
+        }
+        return removed[0];
+    }
+
+    private static int removeExpired(Segment segment, long userId, long expireTime) {
+        int slot = segment.indexOf(userId);
+        if (slot < 0) {
+            return 0;
+        }
+        long[] cart = segment.carts[slot];
+        int removed = 0;
+        int offset = HEADER;
+        while (offset < HEADER + cart[COUNT] * STRIDE) {
+            if (cart[offset + UPDATE_TIME] < expireTime) {
+                removeItem(cart, offset);
+                removed++;
+            } else {
+                offset += STRIDE;
+            }
+        }
+        if (cart[COUNT] == 0) {
+            segment.removeAt(slot);
+        } else {
+            // 登记过的桶可能刚被取走，下次写入时重新登记
+            cart[INDEXED_BUCKET] = CartExpiryIndex.NO_BUCKET;
+        }
+        return removed;
+    }
+
+    private Segment segmentFor(long userId) {
+        return segments[(int) (mix(userId) >>> 32) & (segments.length - 1)];
+    }
+
+    private static int find(long[] cart, long productId) {
+        int end = HEADER + (int) cart[COUNT] * STRIDE;
+        for (int offset = HEADER; offset < end; offset += STRIDE) {
+            if (cart[offset + PRODUCT_ID] == productId) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] append(long[] cart, long productId, int quantity, long price, long now) {
+        int count = cart == null ? 0 : (int) cart[COUNT];
+        if (cart == null) {
+            cart = new long[HEADER + INITIAL_CART_ITEMS * STRIDE];
+            cart[INDEXED_BUCKET] = CartExpiryIndex.NO_BUCKET;
+        } else if (HEADER + (count + 1) * STRIDE > cart.length) {
+            // 购物车商品数少，按1.5倍扩容减少空闲槽位
+            cart = Arrays.copyOf(cart, HEADER + (count + Math.max(1, count >> 1)) * STRIDE);
+        }
+        int offset = HEADER + count * STRIDE;
+        cart[offset + PRODUCT_ID] = productId;
+        cart[offset + QUANTITY] = quantity;
+        cart[offset + PRICE] = price;
+        cart[offset + ADD_TIME] = now;
+        cart[offset + UPDATE_TIME] = now;
+        cart[COUNT] = count + 1;
+        return cart;
+    }
+
+    /**
+     * 用最后一个商品覆盖被删除的商品，购物车内商品顺序不保证
+     */
+    private static void removeItem(long[] cart, int offset) {
+        int last = HEADER + ((int) cart[COUNT] - 1) * STRIDE;
+        if (offset != last) {
+            System.arraycopy(cart, last, cart, offset, STRIDE);
+        }
+        cart[COUNT]--;
+    }
+
+    /**
+     * 64位混淆函数，高32位选段，低位定位段内槽位
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * 用户ID到购物车的开放寻址表，carts[i]为null表示空槽
+     */
+    private static final class Segment {
+
+        private final CartExpiryIndex expiryIndex = new CartExpiryIndex();
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private long[][] carts = new long[INITIAL_SEGMENT_CAPACITY][];
+        private int size;
+
+        private void record(long userId, long[] cart, long now) {
+            cart[INDEXED_BUCKET] = expiryIndex.record(userId, now, cart[INDEXED_BUCKET]);
+        }
+
+        private int indexOf(long userId) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(userId) & mask;
+            while (carts[slot] != null) {
+                if (keys[slot] == userId) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void put(long userId, long[] cart) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(userId) & mask;
+            while (carts[slot] != null) {
+                if (keys[slot] == userId) {
+                    carts[slot] = cart;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = userId;
+            carts[slot] = cart;
+            // 负载因子0.75
+            if (++size * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+        }
+
+        /**
+         * 删除槽位上的用户，并把后续探测链上的用户前移填补空位
+         */
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (carts[next] == null) {
+                    break;
+                }
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    carts[gap] = carts[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            carts[gap] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[][] oldCarts = carts;
+            keys = new long[capacity];
+            carts = new long[capacity][];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCarts[i] == null) {
+                    continue;
+                }
+                int slot = (int) mix(oldKeys[i]) & mask;
+                while (carts[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                carts[slot] = oldCarts[i];
+            }
+        }
+    }
+}
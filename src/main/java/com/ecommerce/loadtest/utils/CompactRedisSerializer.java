@@ -0,0 +1,256 @@
+package com.ecommerce.loadtest.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑二进制Redis序列化器
+ * 订单、购物车、缓存中的值基本都是数字、字符串、布尔以及由它们组成的List/Map，按类型标记加变长整数编码，
+ * 不再为每个值写入类名。顶层数字仍编码为十进制文本，保证HINCRBY、HINCRBYFLOAT、Lua脚本中的tonumber和比较照常可用；
+ * 其余类型以小于0x20的类型标记开头，和数字文本不会混淆。不支持的类型退回带类型信息的JSON
+ *
+ * @author rakkaus
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int TAG_NULL = 0x01;
+    private static final int TAG_TRUE = 0x02;
+    private static final int TAG_FALSE = 0x03;
+    private static final int TAG_INT = 0x04;
+    private static final int TAG_DOUBLE = 0x05;
+    private static final int TAG_STRING = 0x06;
+    private static final int TAG_LIST = 0x07;
+    private static final int TAG_MAP = 0x08;
+    private static final int TAG_JSON = 0x09;
+
+    /**
+     * 不支持的类型使用的JSON序列化，需要带类型信息，反序列化时才能还原原始类型
+     */
+    private final ObjectMapper fallbackMapper;
+
+    public CompactRedisSerializer(ObjectMapper fallbackMapper) {
+        this.fallbackMapper = fallbackMapper;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        if (isInteger(value)) {
+            return Long.toString(((Number) value).longValue()).getBytes(StandardCharsets.US_ASCII);
+        }
+        if (value instanceof Double && isFinite((Double) value)) {
+            return Double.toString((Double) value).getBytes(StandardCharsets.US_ASCII);
+        }
+        Output output = new Output();
+        write(output, value);
+        return output.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == '-' || (bytes[0] >= '0' && bytes[0] <= '9')) {
+            String text = new String(bytes, StandardCharsets.US_ASCII);
+            if (text.indexOf('.') >= 0 || text.indexOf('E') >= 0 || text.indexOf('e') >= 0) {
+                return Double.parseDouble(text);
+            }
+            return narrow(Long.parseLong(text));
+        }
+        Input input = new Input(bytes);
+        Object value = read(input);
+        if (input.position != bytes.length) {
+            throw new SerializationException("紧凑编码数据长度不匹配: " + input.position + "/" + bytes.length);
+        }
+        return value;
+    }
+
+    private void write(Output output, Object value) {
+        if (value == null) {
+            output.write(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            output.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (isInteger(value)) {
+            output.write(TAG_INT);
+            output.writeVarLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            output.write(TAG_DOUBLE);
+            output.writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof String) {
+            output.write(TAG_STRING);
+            output.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof List) {
+            Collection<?> list = (Collection<?>) value;
+            output.write(TAG_LIST);
+            output.writeVarLong(list.size());
+            for (Object element : list) {
+                write(output, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.write(TAG_MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(output, entry.getKey());
+                write(output, entry.getValue());
+            }
+        } else {
+            try {
+                output.write(TAG_JSON);
+                output.writeBytes(fallbackMapper.writeValueAsBytes(value));
+            } catch (Exception e) {
+                throw new SerializationException("紧凑编码序列化失败: " + value.getClass().getName(), e);
+            }
+        }
+    }
+
+    private Object read(Input input) {
+        int tag = input.read();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_INT:
+                return narrow(input.readVarLong());
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case TAG_STRING:
+                return new String(input.readBytes(), StandardCharsets.UTF_8);
+            case TAG_LIST: {
+                int size = (int) input.readVarLong();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(input));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = (int) input.readVarLong();
+                Map<Object, Object> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    Object key = read(input);
+                    map.put(key, read(input));
+                }
+                return map;
+            }
+            case TAG_JSON:
+                try {
+                    return fallbackMapper.readValue(input.readBytes(), Object.class);
+                } catch (Exception e) {
+                    throw new SerializationException("紧凑编码反序列化失败", e);
+                }
+            default:
+                throw new SerializationException("未知的紧凑编码类型标记: " + tag);
+        }
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    /**
+     * 与JSON反序列化保持一致：int范围内的整数还原为Integer，否则为Long
+     */
+    private static Object narrow(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(64);
+        }
+
+        /**
+         * zigzag变长整数，绝对值小的数只占1~2个字节
+         */
+        private void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int) zigzag);
+        }
+
+        private void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int read() {
+            if (position >= bytes.length) {
+                throw new SerializationException("紧凑编码数据不完整");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new SerializationException("紧凑编码变长整数过长");
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | read();
+            }
+            return value;
+        }
+
+        private byte[] readBytes() {
+            int length = (int) readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new SerializationException("紧凑编码数据不完整");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, position, result, 0, length);
+            position += length;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.loadtest.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定长无锁位图
+ * 按64位一个word存储，置位通过CAS完成，多个线程可以并发判重
+ *
+ * @author rakkaus
+ */
+public class ConcurrentBitSet {
+
+    private final long size;
+    private final AtomicLongArray words;
+
+    public ConcurrentBitSet(long size) {
+        if (size < 0 || (size + 63) >>> 6 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("位图大小超出范围: " + size);
+        }
+        this.size = size;
+        this.words = new AtomicLongArray((int) ((size + 63) >>> 6));
+    }
+
+    /**
+     * 置位
+     *
+     * @return 该位之前未被置位返回true，已被置位返回false
+     */
+    public boolean set(long index) {
+        checkIndex(index);
+        int wordIndex = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long word = words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(wordIndex, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean get(long index) {
+        checkIndex(index);
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
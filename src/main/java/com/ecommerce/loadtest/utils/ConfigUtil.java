@@ -30,6 +30,10 @@ public class ConfigUtil {
                 return stressTestDataConfig.getProcessing().getMaxProductCount();
             case "red_envelope_current_limiting":
                 return stressTestDataConfig.getProcessing().getRedEnvelopeQpsLimit();
+            case "red_envelope_burst":
+                return stressTestDataConfig.getProcessing().getRedEnvelopeBurst();
+            case "red_envelope_prefetch":
+                return stressTestDataConfig.getProcessing().getRedEnvelopePrefetch();
             case "default_thread_pool_size":
                 return stressTestDataConfig.getProcessing().getDefaultThreadPoolSize();
             default:
@@ -45,6 +49,8 @@ public class ConfigUtil {
         switch (key) {
             case "temp_dir":
                 return stressTestDataConfig.getFile().getTempDir();
+            case "red_envelope_limiter_mode":
+                return stressTestDataConfig.getProcessing().getRedEnvelopeLimiterMode();
             case "default_receiver":
                 return stressTestDataConfig.getNotification().getDefaultReceiver();
             default:
@@ -0,0 +1,17 @@
+package com.ecommerce.loadtest.utils;
+
+/**
+ * 限流器接口
+ * 红包发放等批量任务的各个工作线程共享同一个限流器实例
+ *
+ * @author rakkaus
+ */
+public interface RateLimiter {
+
+    /**
+     * 获取一个令牌，令牌不足时阻塞到令牌可用为止
+     *
+     * @return 实际等待的纳秒数
+     */
+    long acquire() throws InterruptedException;
+}
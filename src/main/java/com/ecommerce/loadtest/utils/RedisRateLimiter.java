@@ -0,0 +1,128 @@
+package com.ecommerce.loadtest.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于Redis的集群限流器
+ * 多个实例共享同一个Redis key上的GCRA令牌桶，每次从Redis批量预取令牌到本地，
+ * 本地令牌用完前不再访问Redis；Redis不可用时降级为本地限流器
+ *
+ * @author rakkaus
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    /**
+     * Redis异常后暂停访问Redis的时长，期间直接使用本地限流
+     */
+    private static final long REDIS_RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        GCRA_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/gcra_rate_limiter.lua")));
+        GCRA_SCRIPT.setResultType(List.class);
+    }
+
+    private final RedisUtil redisUtil;
+    private final String key;
+    private final long intervalMicros;
+    private final int burst;
+    private final int prefetch;
+    private final RateLimiter fallback;
+
+    /**
+     * 本地预取的剩余令牌
+     */
+    private final AtomicInteger localTokens = new AtomicInteger();
+
+    private final Object refillLock = new Object();
+
+    private volatile long redisRetryAt;
+
+    public RedisRateLimiter(RedisUtil redisUtil, String key, int permitsPerSecond, int burst, int prefetch,
+                            RateLimiter fallback) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond必须大于0");
+        }
+        this.redisUtil = redisUtil;
+        this.key = key;
+        this.intervalMicros = Math.max(1L, TimeUnit.SECONDS.toMicros(1) / permitsPerSecond);
+        this.burst = Math.max(1, burst);
+        this.prefetch = Math.max(1, Math.min(prefetch, this.burst));
+        this.fallback = fallback;
+        this.redisRetryAt = System.nanoTime();
+    }
+
+    @Override
+    public long acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        while (true) {
+            if (takeLocalToken()) {
+                return System.nanoTime() - start;
+            }
+            if (System.nanoTime() - redisRetryAt < 0) {
+                fallback.acquire();
+                return System.nanoTime() - start;
+            }
+            synchronized (refillLock) {
+                if (takeLocalToken()) {
+                    return System.nanoTime() - start;
+                }
+                long waitMicros = refill();
+                if (waitMicros < 0) {
+                    fallback.acquire();
+                    return System.nanoTime() - start;
+                }
+                if (waitMicros > 0) {
+                    TimeUnit.MICROSECONDS.sleep(waitMicros);
+                }
+            }
+        }
+    }
+
+    private boolean takeLocalToken() {
+        while (true) {
+            int tokens = localTokens.get();
+            if (tokens <= 0) {
+                return false;
+            }
+            if (localTokens.compareAndSet(tokens, tokens - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 从Redis预取令牌
+     *
+     * @return 未取到令牌时需要等待的微秒数，取到令牌返回0，Redis异常返回-1
+     */
+    private long refill() {
+        try {
+            List<?> result = redisUtil.execute(GCRA_SCRIPT, Collections.singletonList(key),
+                    intervalMicros, burst, prefetch);
+            long granted = ((Number) result.get(0)).longValue();
+            if (granted > 0) {
+                localTokens.addAndGet((int) granted);
+                return 0;
+            }
+            return Math.max(1L, ((Number) result.get(1)).longValue());
+        } catch (Exception e) {
+            logger.warn("Redis限流失败，降级为本地限流 - key: {}, error: {}", key, e.getMessage());
+            redisRetryAt = System.nanoTime() + REDIS_RETRY_INTERVAL_NANOS;
+            return -1;
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.ecommerce.loadtest.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Redis工具类
@@ -18,6 +25,8 @@ public class RedisUtil {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    private static final StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();
+    
     // =============================Common============================
     
     /**
@@ -202,9 +211,12 @@ public class RedisUtil {
     
     /**
      * 删除hash表中的值
+     * 
+     * @return 实际删除的字段数
      */
-    public void hdel(String key, Object... item) {
-        redisTemplate.opsForHash().delete(key, item);
+    public long hdel(String key, Object... item) {
+        Long count = redisTemplate.opsForHash().delete(key, item);
+        return count == null ? 0 : count;
     }
     
     /**
@@ -307,6 +319,61 @@ public class RedisUtil {
         }
     }
     
+    // ============================ZSet=============================
+    
+    /**
+     * 将数据放入zset缓存并设置时间
+     */
+    public boolean zAdd(String key, Object value, double score, long time) {
+        try {
+            redisTemplate.opsForZSet().add(key, value, score);
+            if (time > 0) {
+                expire(key, time);
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * 按分值从高到低获取zset中分值在[min, max]内的值，从offset开始最多取count个，count为负数时取全部
+     */
+    public Set<Object> zReverseRangeByScore(String key, double min, double max, long offset, long count) {
+        try {
+            return redisTemplate.opsForZSet().reverseRangeByScore(key, min, max, offset, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * 按分值从低到高获取zset中分值在[min, max]内的值，从offset开始最多取count个，count为负数时取全部
+     */
+    public Set<Object> zRangeByScore(String key, double min, double max, long offset, long count) {
+        try {
+            return redisTemplate.opsForZSet().rangeByScore(key, min, max, offset, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * 获取zset的元素个数
+     */
+    public long zCard(String key) {
+        try {
+            Long size = redisTemplate.opsForZSet().zCard(key);
+            return size == null ? 0 : size;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+    
     // ===============================List=================================
     
     /**
@@ -428,4 +495,106 @@ public class RedisUtil {
             return 0;
         }
     }
+    
+    // ============================HyperLogLog=============================
+    
+    /**
+     * 获取HyperLogLog的基数估计值
+     */
+    public long pfCount(String key) {
+        try {
+            Long count = redisTemplate.opsForHyperLogLog().size(key);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+    
+    // ===============================Pub/Sub=================================
+    
+    /**
+     * 向频道发布消息，消息按value的序列化方式编码
+     */
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+    
+    /**
+     * 按value的序列化方式解码，用于解析订阅到的消息体
+     */
+    public Object deserializeValue(byte[] bytes) {
+        return redisTemplate.getValueSerializer().deserialize(bytes);
+    }
+    
+    // ===============================Pipeline=================================
+    
+    /**
+     * 在一个管道中批量执行命令，减少网络往返
+     * 回调内各命令的返回值均为null，实际结果按命令顺序放在返回列表中
+     */
+    public List<Object> executePipelined(Consumer<RedisOperations<String, Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * 在一个管道中批量获取多个hash的所有键值，结果与keys顺序一一对应，不存在的key对应空Map
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<Object, Object>> hmgetAll(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> results = executePipelined(operations -> {
+            for (String key : keys) {
+                operations.opsForHash().entries(key);
+            }
+        });
+        List<Map<Object, Object>> maps = new ArrayList<>(results.size());
+        for (Object result : results) {
+            maps.add(result instanceof Map ? (Map<Object, Object>) result : Collections.emptyMap());
+        }
+        return maps;
+    }
+    
+    // ===============================Script=================================
+    
+    /**
+     * 按hash value的序列化方式编码，用于在Lua脚本中与hash字段值比较或直接写入hash
+     */
+    @SuppressWarnings("unchecked")
+    public byte[] serializeHashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
+    
+    /**
+     * 按value的序列化方式编码，用于在Lua脚本中与string、set、zset中的值比较或直接写入
+     */
+    @SuppressWarnings("unchecked")
+    public byte[] serializeValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+    
+    /**
+     * 执行Lua脚本
+     * 参数按原始字节传递：byte[]原样传入，其余按字符串传入，脚本返回的字符串按String解析
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        Object[] rawArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            rawArgs[i] = args[i] instanceof byte[]
+                    ? args[i]
+                    : String.valueOf(args[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        RedisSerializer<T> resultSerializer = (RedisSerializer<T>) (RedisSerializer<?>) STRING_SERIALIZER;
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), resultSerializer, keys, rawArgs);
+    }
 }
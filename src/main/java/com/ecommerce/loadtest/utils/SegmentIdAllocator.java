@@ -0,0 +1,140 @@
+package com.ecommerce.loadtest.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段ID分配器
+ * 每次从Redis原子地租用step个连续ID，在本地通过CAS逐个分配；当前号段用掉一半时在后台预取下一个号段，
+ * 号段切换时通常无需等待Redis。进程重启后未用完的号段直接丢弃，ID单调递增但不保证连续
+ *
+ * @author rakkaus
+ */
+public class SegmentIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentIdAllocator.class);
+
+    private static final DefaultRedisScript<Long> SEGMENT_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SEGMENT_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/id_segment.lua")));
+        SEGMENT_SCRIPT.setResultType(Long.class);
+    }
+
+    private final RedisUtil redisUtil;
+    private final String key;
+    private final int step;
+    private final long minId;
+    private final ExecutorService prefetchExecutor;
+
+    private volatile Segment current;
+
+    /**
+     * 预取中的下一个号段，由号段切换时取走
+     */
+    private volatile CompletableFuture<Segment> next;
+
+    public SegmentIdAllocator(RedisUtil redisUtil, String key, int step, long minId) {
+        this.redisUtil = redisUtil;
+        this.key = key;
+        this.step = Math.max(1, step);
+        this.minId = minId;
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "id-segment-prefetch-" + key);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.current = new Segment(1, 0);
+    }
+
+    /**
+     * 分配一个ID
+     */
+    public long nextId() {
+        while (true) {
+            Segment segment = current;
+            long id = segment.cursor.getAndIncrement();
+            if (id <= segment.end) {
+                if (id == segment.prefetchAt) {
+                    prefetch();
+                }
+                return id;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 直接从Redis租用count个连续ID，不占用本地号段，用于批量创建
+     *
+     * @return 第一个ID，范围为 [返回值, 返回值 + count - 1]
+     */
+    public long leaseRange(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count必须大于0");
+        }
+        Long end = redisUtil.execute(SEGMENT_SCRIPT, Collections.singletonList(key), count, minId);
+        return end - count + 1;
+    }
+
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    private void prefetch() {
+        next = CompletableFuture.supplyAsync(this::lease, prefetchExecutor);
+    }
+
+    /**
+     * 当前号段用尽时切换到下一个号段，只有第一个发现用尽的线程会真正切换
+     */
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        CompletableFuture<Segment> pending = next;
+        next = null;
+        Segment segment = null;
+        if (pending != null) {
+            try {
+                segment = pending.join();
+            } catch (Exception e) {
+                logger.warn("预取号段失败，改为同步租用 - key: {}, error: {}", key, e.getMessage());
+            }
+        }
+        current = segment != null ? segment : lease();
+    }
+
+    private Segment lease() {
+        Long end = redisUtil.execute(SEGMENT_SCRIPT, Collections.singletonList(key), step, minId);
+        Segment segment = new Segment(end - step + 1, end);
+        logger.debug("租用号段 - key: {}, 范围: [{}, {}]", key, segment.cursor.get(), end);
+        return segment;
+    }
+
+    private static final class Segment {
+
+        private final AtomicLong cursor;
+        private final long end;
+
+        /**
+         * 分配到该ID时触发下一个号段的预取
+         */
+        private final long prefetchAt;
+
+        private Segment(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = start + (end - start + 1) / 2;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ecommerce.loadtest.utils;
+
+import com.ecommerce.loadtest.entity.CartItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分段加锁的内存购物车存储
+ * 同一用户的所有读写在该用户所属分段锁内完成，合并数量、删除空购物车等复合操作都是原子的；
+ * 不同用户落在不同分段时互不阻塞；每个分段有自己的过期索引，写入时在分段锁内登记，清理时只访问可能过期的用户
+ *
+ * @author rakkaus
+ */
+public class StripedCartStore implements CartStore {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Stripe[] stripes;
+
+    public StripedCartStore() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedCartStore(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public int merge(long userId, long productId, int quantity, long price, long now) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCart cart = carts.computeIfAbsent(userId, k -> new UserCart());
+            CartItem item = cart.items.get(productId);
+            if (item == null) {
+                item = new CartItem(productId, 0, price, now, now);
+                cart.items.put(productId, item);
+            }
+            item.setQuantity(item.getQuantity() + quantity);
+            item.setPrice(price);
+            item.setUpdateTime(now);
+            cart.indexedBucket = stripe.expiryIndex.record(userId, now, cart.indexedBucket);
+            return item.getQuantity();
+        }
+    }
+
+    @Override
+    public int mergeAll(long userId, long[] productIds, int[] quantities, long[] prices, long now) {
+        if (productIds.length == 0) {
+            return 0;
+        }
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCart cart = carts.computeIfAbsent(userId, k -> new UserCart());
+            for (int i = 0; i < productIds.length; i++) {
+                CartItem item = cart.items.get(productIds[i]);
+                if (item == null) {
+                    item = new CartItem(productIds[i], 0, prices[i], now, now);
+                    cart.items.put(productIds[i], item);
+                }
+                item.setQuantity(item.getQuantity() + quantities[i]);
+                item.setPrice(prices[i]);
+                item.setUpdateTime(now);
+            }
+            cart.indexedBucket = stripe.expiryIndex.record(userId, now, cart.indexedBucket);
+            return productIds.length;
+        }
+    }
+
+    @Override
+    public boolean update(long userId, long productId, int quantity, long now) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserCart cart = carts.get(userId);
+            CartItem item = cart == null ? null : cart.items.get(productId);
+            if (item == null) {
+                return false;
+            }
+            item.setQuantity(quantity);
+            item.setUpdateTime(now);
+            cart.indexedBucket = stripe.expiryIndex.record(userId, now, cart.indexedBucket);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(long userId, long productId) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.get(userId);
+            if (cart == null || cart.items.remove(productId) == null) {
+                return false;
+            }
+            if (cart.items.isEmpty()) {
+                carts.remove(userId);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int clear(long userId) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.remove(userId);
+            return cart == null ? -1 : cart.items.size();
+        }
+    }
+
+    @Override
+    public List<CartItem> snapshot(long userId) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                return new ArrayList<>();
+            }
+            List<CartItem> items = new ArrayList<>(cart.items.size());
+            for (CartItem item : cart.items.values()) {
+                items.add(item.copy());
+            }
+            return items;
+        }
+    }
+
+    /**
+     * 逐个分段清理，分段内的用户都使用该分段的锁，整个分段的清理在一次加锁内完成
+     */
+    @Override
+    public int removeExpired(long expireTime) {
+        int[] removed = new int[1];
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expiryIndex.drainExpired(expireTime, userId -> removed[0] += removeExpired(userId, expireTime));
+            }
+        }
+        return removed[0];
+    }
+
+    private int removeExpired(long userId, long expireTime) {
+        UserCart cart = carts.get(userId);
+        if (cart == null) {
+            return 0;
+        }
+        int removed = 0;
+        Iterator<CartItem> iterator = cart.items.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getUpdateTime() < expireTime) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (cart.items.isEmpty()) {
+            carts.remove(userId);
+        } else {
+            // 登记过的桶可能刚被取走，下次写入时重新登记
+            cart.indexedBucket = CartExpiryIndex.NO_BUCKET;
+        }
+        return removed;
+    }
+
+    private Stripe stripeFor(long userId) {
+        int hash = (int) (userId ^ (userId >>> 32));
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+
+        private final CartExpiryIndex expiryIndex = new CartExpiryIndex();
+    }
+
+    private static final class UserCart {
+
+        private final Map<Long, CartItem> items = new HashMap<>();
+        private long indexedBucket = CartExpiryIndex.NO_BUCKET;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.loadtest.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁令牌桶限流器
+ * 以纳秒精度按固定速率补充令牌，允许最多burst个令牌的突发，
+ * 多个工作线程共享同一实例，通过CAS预占令牌，只对需要等待的调用方按需park
+ *
+ * @author rakkaus
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 每个令牌的补充间隔（纳秒）
+     */
+    private final long intervalNanos;
+
+    /**
+     * 桶容量对应的时间跨度（纳秒）
+     */
+    private final long burstNanos;
+
+    /**
+     * 下一个令牌的理论到达时间，令牌预占通过CAS推进
+     */
+    private final AtomicLong nextFreeNanos;
+
+    public TokenBucketRateLimiter(int permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond必须大于0");
+        }
+        this.intervalNanos = Math.max(1L, NANOS_PER_SECOND / permitsPerSecond);
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.nextFreeNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 获取一个令牌，令牌不足时park到令牌可用为止
+     *
+     * @return 实际等待的纳秒数
+     */
+    @Override
+    public long acquire() throws InterruptedException {
+        long waitNanos = reserve(System.nanoTime());
+        if (waitNanos > 0) {
+            parkNanos(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * 预占一个令牌并返回需要等待的纳秒数（GCRA）
+     */
+    private long reserve(long now) {
+        while (true) {
+            long prev = nextFreeNanos.get();
+            long tat = Math.max(prev, now);
+            if (nextFreeNanos.compareAndSet(prev, tat + intervalNanos)) {
+                return tat + intervalNanos - burstNanos - now;
+            }
+        }
+    }
+
+    private void parkNanos(long waitNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining = waitNanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("等待令牌时被中断");
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ecommerce.loadtest.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * 异步批量写缓冲区
+ * 调用方把记录放入有界队列后立即返回，后台线程攒够batchSize条或等待flushInterval后批量写库；
+ * 队列写满时put阻塞调用方，形成对下游数据库的背压；后台线程退出后put、offer和flush都不再等待，直接失败。
+ * flusher返回本批未能写入的记录数，调用方通过失败计数判断自己放入的记录是否全部落库
+ *
+ * @author rakkaus
+ * @param <T> 记录类型
+ */
+public class WriteBehindBuffer<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    
+    /**
+     * 写入耗时和失败率滑动平均的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final ToIntFunction<List<T>> flusher;
+    private final Thread worker;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Object flushMonitor = new Object();
+
+    private volatile boolean running = true;
+    
+    /**
+     * 批量写入耗时的滑动平均（毫秒），只由后台线程更新
+     */
+    private volatile double averageFlushMillis;
+    
+    /**
+     * 每批写入失败记录占比的滑动平均，只由后台线程更新
+     */
+    private volatile double averageFailureRate;
+
+    public WriteBehindBuffer(String name, int capacity, int batchSize, long flushIntervalMillis,
+                             ToIntFunction<List<T>> flusher) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, flushIntervalMillis));
+        this.flusher = flusher;
+        this.worker = new Thread(this::runLoop, "write-behind-" + name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        logger.info("启动批量写缓冲区 - name: {}, 容量: {}, 批量大小: {}", name, queue.remainingCapacity(), batchSize);
+        worker.start();
+    }
+
+    /**
+     * 放入一条记录，队列已满时阻塞等待，缓冲区关闭或后台线程退出后抛出IllegalStateException
+     */
+    public void put(T item) throws InterruptedException {
+        checkRunning();
+        while (!queue.offer(item, flushIntervalNanos, TimeUnit.NANOSECONDS)) {
+            checkRunning();
+        }
+        checkAccepted(item);
+        enqueuedCount.incrementAndGet();
+    }
+
+    /**
+     * 尝试放入一条记录，队列已满时立即返回false
+     */
+    public boolean offer(T item) {
+        if (!running || isWorkerStopped() || !queue.offer(item)) {
+            return false;
+        }
+        if (isWorkerStopped() && queue.remove(item)) {
+            return false;
+        }
+        enqueuedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 等待调用前已放入的记录全部写库（或确认写库失败），后台线程已退出时抛出IllegalStateException
+     *
+     * @return 此时累计写库失败的记录数，与放入记录前的getFailedCount()比较即可知道期间是否有记录丢失
+     */
+    public long flush() throws InterruptedException {
+        long target = enqueuedCount.get();
+        synchronized (flushMonitor) {
+            while (processedCount.get() < target) {
+                if (isWorkerStopped()) {
+                    throw new IllegalStateException("批量写缓冲区已停止，仍有" + (target - processedCount.get())
+                            + "条记录未写入: " + name);
+                }
+                flushMonitor.wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+            }
+        }
+        return failedCount.get();
+    }
+
+    /**
+     * 停止接收新记录，写完队列中剩余记录后退出
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("批量写缓冲区关闭时仍有{}条记录未写入 - name: {}", queue.size(), name);
+        }
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public double getAverageFlushMillis() {
+        return averageFlushMillis;
+    }
+
+    public double getAverageFailureRate() {
+        return averageFailureRate;
+    }
+
+    /**
+     * 已关闭或后台线程已退出时拒绝新记录
+     */
+    private void checkRunning() {
+        if (!running || isWorkerStopped()) {
+            throw new IllegalStateException("批量写缓冲区已关闭: " + name);
+        }
+    }
+
+    /**
+     * 入队后后台线程才退出时，记录不会再被写库，取回并拒绝
+     */
+    private void checkAccepted(T item) {
+        if (isWorkerStopped() && queue.remove(item)) {
+            throw new IllegalStateException("批量写缓冲区已关闭: " + name);
+        }
+    }
+
+    private boolean isWorkerStopped() {
+        return worker.getState() == Thread.State.TERMINATED;
+    }
+
+    private void runLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                logger.warn("批量写缓冲区线程被中断 - name: {}", name);
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        logger.info("批量写缓冲区已停止 - name: {}, 失败记录数: {}", name, failedCount.get());
+    }
+
+    private void writeBatch(List<T> batch) {
+        long start = System.nanoTime();
+        int failed = 0;
+        try {
+            failed = Math.min(batch.size(), Math.max(0, flusher.applyAsInt(new ArrayList<>(batch))));
+            if (failed > 0) {
+                failedCount.addAndGet(failed);
+                logger.warn("批量写入部分失败 - name: {}, 记录数: {}, 失败: {}", name, batch.size(), failed);
+            }
+        } catch (Throwable e) {
+            // Error也在这里吞掉，避免后台线程退出后调用方一直阻塞
+            failed = batch.size();
+            failedCount.addAndGet(failed);
+            logger.error("批量写入失败 - name: {}, 记录数: {}", name, batch.size(), e);
+        } finally {
+            double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+            averageFlushMillis = averageFlushMillis == 0
+                    ? elapsedMillis : averageFlushMillis + EWMA_ALPHA * (elapsedMillis - averageFlushMillis);
+            averageFailureRate += EWMA_ALPHA * ((double) failed / batch.size() - averageFailureRate);
+            // 失败计数先于处理计数更新，flush返回时已包含这些记录的失败数
+            processedCount.addAndGet(batch.size());
+            synchronized (flushMonitor) {
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- 清理过期购物车：活跃索引分值为购物车内最后一次更新时间，早于过期时间点说明所有商品都已过期，整车删除
+-- KEYS[1] 用户购物车hash
+-- KEYS[2] 购物车活跃索引（ZSET，分值为最后更新时间）
+-- ARGV[1] 过期时间点（毫秒）
+-- ARGV[2] 活跃索引成员（userId，与ZSET成员同样的编码）
+-- 返回 移除的商品数
+local score = redis.call('ZSCORE', KEYS[2], ARGV[2])
+if score and tonumber(score) >= tonumber(ARGV[1]) then
+    -- 读取索引后购物车又被更新过
+    return 0
+end
+
+local removed = math.floor(redis.call('HLEN', KEYS[1]) / 4)
+redis.call('DEL', KEYS[1])
+redis.call('ZREM', KEYS[2], ARGV[2])
+return removed
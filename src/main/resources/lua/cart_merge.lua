@@ -0,0 +1,21 @@
+-- 购物车加购：在服务端合并数量，并刷新购物车过期时间和活跃索引
+-- 购物车为每个用户一个hash，每个商品4个字段：q:{商品ID} 数量，p:{商品ID} 价格，a:{商品ID} 加入时间，u:{商品ID} 更新时间
+-- KEYS[1] 用户购物车hash
+-- KEYS[2] 购物车活跃索引（ZSET，分值为最后更新时间）
+-- ARGV[1] 当前时间（毫秒）
+-- ARGV[2] 购物车过期时间（秒）
+-- ARGV[3] 活跃索引成员（userId，与ZSET成员同样的编码）
+-- ARGV[4..] 商品ID, 数量, 价格 三元组
+-- 返回 各商品合并后的数量，顺序与入参一致
+local now = ARGV[1]
+local quantities = {}
+for i = 4, #ARGV, 3 do
+    local productId = ARGV[i]
+    quantities[#quantities + 1] = redis.call('HINCRBY', KEYS[1], 'q:' .. productId, ARGV[i + 1])
+    redis.call('HSET', KEYS[1], 'p:' .. productId, ARGV[i + 2], 'u:' .. productId, now)
+    redis.call('HSETNX', KEYS[1], 'a:' .. productId, now)
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+redis.call('ZADD', KEYS[2], now, ARGV[3])
+return quantities
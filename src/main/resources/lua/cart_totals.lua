@@ -0,0 +1,23 @@
+-- 购物车汇总：在服务端计算商品种类数、总数量和总价，不把整个购物车传回客户端
+-- KEYS[1] 用户购物车hash
+-- 返回 {商品种类数, 总数量, 总价}
+local fields = redis.call('HGETALL', KEYS[1])
+local prices = {}
+for i = 1, #fields, 2 do
+    if string.sub(fields[i], 1, 2) == 'p:' then
+        prices[string.sub(fields[i], 3)] = tonumber(fields[i + 1])
+    end
+end
+
+local products = 0
+local totalQuantity = 0
+local totalPrice = 0
+for i = 1, #fields, 2 do
+    if string.sub(fields[i], 1, 2) == 'q:' then
+        local quantity = tonumber(fields[i + 1])
+        products = products + 1
+        totalQuantity = totalQuantity + quantity
+        totalPrice = totalPrice + quantity * (prices[string.sub(fields[i], 3)] or 0)
+    end
+end
+return {products, totalQuantity, totalPrice}
@@ -0,0 +1,18 @@
+-- 购物车改数量：商品已在购物车中时才更新（比较并设置）
+-- KEYS[1] 用户购物车hash
+-- KEYS[2] 购物车活跃索引（ZSET，分值为最后更新时间）
+-- ARGV[1] 当前时间（毫秒）
+-- ARGV[2] 购物车过期时间（秒）
+-- ARGV[3] 活跃索引成员（userId，与ZSET成员同样的编码）
+-- ARGV[4] 商品ID
+-- ARGV[5] 新数量
+-- 返回 1 成功，0 商品不在购物车中
+local productId = ARGV[4]
+if redis.call('HEXISTS', KEYS[1], 'q:' .. productId) == 0 then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], 'q:' .. productId, ARGV[5], 'u:' .. productId, ARGV[1])
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+redis.call('ZADD', KEYS[2], ARGV[1], ARGV[3])
+return 1
@@ -0,0 +1,29 @@
+-- GCRA限流：按需批量预取令牌
+-- KEYS[1] 限流key，保存下一个令牌的理论到达时间（微秒）
+-- ARGV[1] 令牌间隔（微秒）
+-- ARGV[2] 突发容量
+-- ARGV[3] 本次申请的令牌数
+-- 返回 {发放的令牌数, 无令牌时需要等待的微秒数}
+redis.replicate_commands()
+
+local interval = tonumber(ARGV[1])
+local burst = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+if tat < now then
+    tat = now
+end
+
+local available = math.floor((now + burst * interval - tat) / interval)
+if available <= 0 then
+    return {0, tat + interval - burst * interval - now}
+end
+
+local granted = math.min(requested, available)
+tat = tat + granted * interval
+redis.call('SET', KEYS[1], string.format('%.0f', tat), 'PX', math.ceil((tat - now) / 1000) + 1000)
+return {granted, 0}
@@ -0,0 +1,13 @@
+-- 号段分配：原子地租用一段连续ID
+-- KEYS[1] ID生成器key，保存已分配出去的最大ID
+-- ARGV[1] 号段大小
+-- ARGV[2] 最小起始ID，生成器不足该值时先对齐，避免并发重置
+-- 返回 本号段的最大ID，号段为 [返回值 - 号段大小 + 1, 返回值]
+local step = tonumber(ARGV[1])
+local floor = tonumber(ARGV[2])
+
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+if current < floor - 1 then
+    redis.call('SET', KEYS[1], floor - 1)
+end
+return redis.call('INCRBY', KEYS[1], step)
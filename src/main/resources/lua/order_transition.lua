@@ -0,0 +1,36 @@
+-- 订单状态流转：校验归属与当前状态后一次性更新所有字段（比较并设置），并把订单从原状态索引移到新状态索引
+-- KEYS[1] 订单hash key
+-- KEYS[2] 用户原状态订单索引（ZSET）
+-- KEYS[3] 用户新状态订单索引（ZSET）
+-- ARGV[1] 订单所属userId（与hash中字段同样的编码）
+-- ARGV[2] 期望的当前状态
+-- ARGV[3] 目标状态
+-- ARGV[4] 索引成员（订单ID，与ZSET成员同样的编码）
+-- ARGV[5] 索引过期时间（秒）
+-- ARGV[6] 索引裁剪点：分值小于该值的成员对应的订单已过期，流转时从两个索引中一并删除
+-- ARGV[7..] 需要同时写入的 field, value 对
+-- 返回 {结果码, 当前状态, createTime, totalPrice}：1 成功，0 订单不存在，-1 无权限，-2 状态不允许
+-- createTime同时作为索引分值，createTime和totalPrice按hash中的编码返回，调用方无需再读一次订单
+local current = redis.call('HMGET', KEYS[1], 'userId', 'status', 'createTime', 'totalPrice')
+if not current[1] then
+    return {0, ''}
+end
+if current[1] ~= ARGV[1] then
+    return {-1, current[2] or ''}
+end
+if current[2] ~= ARGV[2] then
+    return {-2, current[2] or ''}
+end
+
+redis.call('HSET', KEYS[1], 'status', ARGV[3])
+for i = 7, #ARGV, 2 do
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+
+local createTime = current[3] or '0'
+redis.call('ZREM', KEYS[2], ARGV[4])
+redis.call('ZADD', KEYS[3], createTime, ARGV[4])
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', '(' .. ARGV[6])
+redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', '(' .. ARGV[6])
+redis.call('EXPIRE', KEYS[3], ARGV[5])
+return {1, ARGV[3], createTime, current[4] or '0'}
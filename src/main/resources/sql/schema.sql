@@ -1,5 +1,6 @@
 -- Stress Test Data 数据库初始化脚本
 -- 电商压测数据处理平台
+-- 表结构变更时同步维护upgrade.sql，已有的库执行upgrade.sql升级
 
 -- 创建数据库
 CREATE DATABASE IF NOT EXISTS stress_test_data CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
@@ -42,6 +43,10 @@ CREATE TABLE IF NOT EXISTS test_batch (
     total_count BIGINT DEFAULT 0 COMMENT '计划总数',
     real_count BIGINT DEFAULT 0 COMMENT '实际执行数',
     batch_status INT DEFAULT 0 COMMENT '批次状态：0-新建，1-进行中，2-已完成',
+    checkpoint_offset BIGINT DEFAULT 0 COMMENT '断点：已完成的用户偏移量',
+    plan_send_count BIGINT COMMENT '计划发放次数',
+    owner_id VARCHAR(128) COMMENT '正在发放的节点',
+    heartbeat_time BIGINT COMMENT '发放节点最近心跳时间戳',
     INDEX idx_create_user (create_user),
     INDEX idx_batch_status (batch_status),
     INDEX idx_create_time (create_time)
@@ -59,8 +64,8 @@ CREATE TABLE IF NOT EXISTS red_envelope_record (
     platform_type INT COMMENT '平台类型：1-平台A，2-平台B',
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_batch_envelope_uid (batch_id, red_envelope_id, uid),
     INDEX idx_uid (uid),
-    INDEX idx_batch_id (batch_id),
     INDEX idx_red_envelope_id (red_envelope_id),
     INDEX idx_platform_type (platform_type)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='红包记录表';
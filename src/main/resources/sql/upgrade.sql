@@ -0,0 +1,61 @@
+-- Stress Test Data 数据库升级脚本
+-- 用旧版schema.sql创建的库需要执行本脚本补齐新增的列和索引，新建的库执行schema.sql即可
+-- 每一步先查information_schema，已存在的列或索引会跳过，脚本可以重复执行
+
+USE stress_test_data;
+
+-- test_batch：发放断点
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'test_batch' AND COLUMN_NAME = 'checkpoint_offset') = 0,
+              'ALTER TABLE test_batch ADD COLUMN checkpoint_offset BIGINT DEFAULT 0 COMMENT ''断点：已完成的用户偏移量''',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'test_batch' AND COLUMN_NAME = 'plan_send_count') = 0,
+              'ALTER TABLE test_batch ADD COLUMN plan_send_count BIGINT COMMENT ''计划发放次数''',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- test_batch：发放节点认领与心跳
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'test_batch' AND COLUMN_NAME = 'owner_id') = 0,
+              'ALTER TABLE test_batch ADD COLUMN owner_id VARCHAR(128) COMMENT ''正在发放的节点''',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'test_batch' AND COLUMN_NAME = 'heartbeat_time') = 0,
+              'ALTER TABLE test_batch ADD COLUMN heartbeat_time BIGINT COMMENT ''发放节点最近心跳时间戳''',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- red_envelope_record：(batch_id, red_envelope_id, uid)唯一键替换idx_batch_id，批量写入靠它吸收续发时的重复记录
+-- 旧数据里已有重复记录时加唯一键会报Duplicate entry，需先清理重复记录，例如只保留receive_id最小的一条：
+-- DELETE r1 FROM red_envelope_record r1 JOIN red_envelope_record r2
+--     ON r1.batch_id = r2.batch_id AND r1.red_envelope_id = r2.red_envelope_id AND r1.uid = r2.uid
+--    AND r1.receive_id > r2.receive_id;
+-- 先加唯一键再删旧索引，唯一键加失败时batch_id上的索引仍然保留
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'red_envelope_record' AND INDEX_NAME = 'uk_batch_envelope_uid') = 0,
+              'ALTER TABLE red_envelope_record ADD UNIQUE KEY uk_batch_envelope_uid (batch_id, red_envelope_id, uid)',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'red_envelope_record' AND INDEX_NAME = 'idx_batch_id') > 0,
+              'ALTER TABLE red_envelope_record DROP INDEX idx_batch_id',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;